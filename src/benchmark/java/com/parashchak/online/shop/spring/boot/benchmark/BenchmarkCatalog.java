@@ -0,0 +1,104 @@
+package com.parashchak.online.shop.spring.boot.benchmark;
+
+import com.parashchak.online.shop.spring.boot.OnlineShopSpringBootApplication;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.service.ProductServiceImpl;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Starts the application against a dedicated in-memory H2 database and seeds it
+ * with a catalog of the requested size.
+ */
+final class BenchmarkCatalog {
+
+    private static final int BATCH_SIZE = 10_000;
+    private static final LocalDateTime CREATION_DATE = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private BenchmarkCatalog() {
+    }
+
+    static ConfigurableApplicationContext start(int rows, WebApplicationType webApplicationType) {
+        return start(rows, webApplicationType, Duration.ZERO);
+    }
+
+    /**
+     * Starts the application with every JDBC statement delayed by the given latency,
+     * standing in for the network round trip to a real database.
+     */
+    static ConfigurableApplicationContext start(int rows, WebApplicationType webApplicationType,
+                                                Duration statementLatency, String... properties) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "--spring.r2dbc.url=r2dbc:h2:mem:///benchmark;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.properties.hibernate.show_sql=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--spring.jpa.properties.hibernate.generate_statistics=false",
+                "--spring.main.banner-mode=off",
+                "--server.port=0",
+                "--online-shop.access-log.enabled=false",
+                "--logging.level.root=warn"));
+        for (String property : properties) {
+            arguments.add("--" + property);
+        }
+
+        // passed as arguments, so they take precedence over application.properties
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(OnlineShopSpringBootApplication.class)
+                .web(webApplicationType)
+                .initializers(applicationContext -> {
+                    if (!statementLatency.isZero()) {
+                        applicationContext.getBeanFactory().addBeanPostProcessor(new LatencyDataSource.Installer(statementLatency));
+                    }
+                })
+                .run(arguments.toArray(String[]::new));
+        seed(context.getBean(JdbcTemplate.class), rows);
+        context.getBean(ProductServiceImpl.class).buildSearchIndex();
+        return context;
+    }
+
+    static List<Product> products(int rows) {
+        List<Product> products = new ArrayList<>(rows);
+        for (int id = 1; id <= rows; id++) {
+            products.add(Product.builder()
+                    .id(id)
+                    .name(name(id))
+                    .price(price(id))
+                    .creationDate(CREATION_DATE.plusMinutes(id))
+                    .description(description(id))
+                    .build());
+        }
+        return products;
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate, int rows) {
+        for (int from = 1; from <= rows; from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(
+                    "insert into products (id, name, price, creation_date, description, version) values (?, ?, ?, ?, ?, 0)",
+                    IntStream.range(from, Math.min(from + BATCH_SIZE, rows + 1))
+                            .mapToObj(id -> new Object[]{id, name(id), price(id),
+                                    Timestamp.valueOf(CREATION_DATE.plusMinutes(id)), description(id)})
+                            .toList());
+        }
+    }
+
+    private static String name(int id) {
+        return "product" + id;
+    }
+
+    private static double price(int id) {
+        return (id * 37 % 100_000) / 100.0;
+    }
+
+    private static String description(int id) {
+        return "Description of product " + id + ", a catalog item used by benchmarks";
+    }
+}
@@ -0,0 +1,90 @@
+package com.parashchak.online.shop.spring.boot.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Delays every statement execution by a fixed latency. It sits below the
+ * connection pool, so the connection stays borrowed while the statement waits,
+ * as it does with a remote database.
+ */
+final class LatencyDataSource extends DelegatingDataSource {
+
+    private final Duration latency;
+
+    LatencyDataSource(DataSource targetDataSource, Duration latency) {
+        super(targetDataSource);
+        this.latency = latency;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return (Connection) proxy(Connection.class, super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return (Connection) proxy(Connection.class, super.getConnection(username, password));
+    }
+
+    private Object proxy(Class<?> type, Object target) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (target instanceof Statement && method.getName().startsWith("execute")) {
+                Thread.sleep(latency);
+            }
+            Object result = invoke(target, method, args);
+            if (result instanceof Statement statement && target instanceof Connection) {
+                return proxy(statementType(statement), statement);
+            }
+            return result;
+        };
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Class<? extends Statement> statementType(Statement statement) {
+        if (statement instanceof CallableStatement) {
+            return CallableStatement.class;
+        }
+        if (statement instanceof PreparedStatement) {
+            return PreparedStatement.class;
+        }
+        return Statement.class;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException exception) {
+            throw exception.getTargetException();
+        }
+    }
+
+    /**
+     * Puts a {@link LatencyDataSource} under the Hikari pool before the pool is started.
+     */
+    record Installer(Duration latency) implements BeanPostProcessor {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof HikariDataSource hikari) {
+                DataSource driver = new DriverManagerDataSource(hikari.getJdbcUrl(), hikari.getUsername(), hikari.getPassword());
+                hikari.setDataSource(new LatencyDataSource(driver, latency));
+            }
+            return bean;
+        }
+    }
+}
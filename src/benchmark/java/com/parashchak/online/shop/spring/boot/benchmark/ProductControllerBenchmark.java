@@ -0,0 +1,92 @@
+package com.parashchak.online.shop.spring.boot.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Full request path of the ProductController endpoints through MockMvc:
+ * routing, argument binding, service, repository and JSON serialization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class ProductControllerBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkCatalog.start(rows, WebApplicationType.SERVLET);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult findById() throws Exception {
+        return mockMvc.perform(get("/product/{id}", randomId())).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult findPage() throws Exception {
+        return mockMvc.perform(get("/products").param("limit", "100")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult search() throws Exception {
+        return mockMvc.perform(get("/products/search/{text}", "product " + randomId() + ",")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult update() throws Exception {
+        return mockMvc.perform(put("/product/{id}", randomId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name":"product","price":"200","description":"productDescription"}"""))
+                .andReturn();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public MvcResult findAll() throws Exception {
+        return mockMvc.perform(get("/products")).andReturn();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public MvcResult export() throws Exception {
+        return mockMvc.perform(get("/products/export")).andReturn();
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(1, rows + 1);
+    }
+}
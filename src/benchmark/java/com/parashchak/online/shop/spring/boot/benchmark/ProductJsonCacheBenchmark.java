@@ -0,0 +1,66 @@
+package com.parashchak.online.shop.spring.boot.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.web.ProductJsonCache;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing the JSON of a found product to the response: serialized per request against the
+ * bytes of {@link ProductJsonCache}. Run with -prof gc to compare the allocation per request
+ * (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ProductJsonCacheBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    // discards the body and, unlike OutputStream.nullOutputStream(), stays open when Jackson closes it
+    private final OutputStream response = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private ObjectMapper objectMapper;
+    private ProductJsonCache productJsonCache;
+    private List<Product> products;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        productJsonCache = new ProductJsonCache(objectMapper, "maximumSize=" + ROWS);
+        products = BenchmarkCatalog.products(ROWS);
+        products.forEach(productJsonCache::json);
+    }
+
+    @Benchmark
+    public void serialize() throws IOException {
+        objectMapper.writeValue(response, randomProduct());
+    }
+
+    @Benchmark
+    public void writeCachedJson() throws IOException {
+        response.write(productJsonCache.json(randomProduct()));
+    }
+
+    private Product randomProduct() {
+        return products.get(ThreadLocalRandom.current().nextInt(ROWS));
+    }
+}
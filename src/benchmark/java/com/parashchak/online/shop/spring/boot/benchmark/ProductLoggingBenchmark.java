@@ -0,0 +1,66 @@
+package com.parashchak.online.shop.spring.boot.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of logging a found result list with toString against one access log line.
+ * Run with -prof gc to compare the allocation per operation (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ProductLoggingBenchmark {
+
+    @Param({"1000", "100000"})
+    private int rows;
+
+    private Logger logger;
+    private List<Product> products;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d %-5level [%thread] %logger : %msg%n");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+
+        logger = context.getLogger("benchmark");
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+
+        products = BenchmarkCatalog.products(rows);
+    }
+
+    @Benchmark
+    public void logResultList() {
+        logger.info("found products: {}", products);
+    }
+
+    @Benchmark
+    public void logAccessLine() {
+        logger.info("method={} endpoint={} status={} count={} id={} latencyMicros={}",
+                "GET", "/products", 200, products.size(), null, 1234L);
+    }
+}
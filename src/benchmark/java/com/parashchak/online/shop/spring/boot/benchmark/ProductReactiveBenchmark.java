@@ -0,0 +1,92 @@
+package com.parashchak.online.shop.spring.boot.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servlet endpoints against their reactive equivalents under /reactive with 1024
+ * concurrent HTTP clients. After each iteration the number of live server threads
+ * (client threads excluded) and the peak heap usage are printed; run with -prof gc
+ * for the allocation per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(1024)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class ProductReactiveBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"servlet", "reactive"})
+    private String api;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private List<MemoryPoolMXBean> heapPools;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkCatalog.start(ROWS, WebApplicationType.SERVLET, Duration.ZERO);
+        String port = String.valueOf(((WebServerApplicationContext) context).getWebServer().getPort());
+        baseUrl = "http://localhost:" + port + (api.equals("reactive") ? "/reactive" : "");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeakUsage() {
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    @TearDown(Level.Iteration)
+    public void printServerUsage() {
+        long serverThreads = Thread.getAllStackTraces().keySet().stream()
+                .map(Thread::getName)
+                .filter(name -> !name.contains("jmh-worker") && !name.startsWith("HttpClient"))
+                .count();
+        long peakHeapMb = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum() >> 20;
+        System.out.printf("%n%s: server threads=%d, peak heap=%d MB%n", api, serverThreads, peakHeapMb);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int findById() throws IOException, InterruptedException {
+        return get("/product/" + ThreadLocalRandom.current().nextInt(1, ROWS + 1), "application/json");
+    }
+
+    @Benchmark
+    public int findAll() throws IOException, InterruptedException {
+        return get("/products", api.equals("reactive") ? "application/x-ndjson" : "application/json");
+    }
+
+    private int get(String path, String accept) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).header("Accept", accept).build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,79 @@
+package com.parashchak.online.shop.spring.boot.benchmark;
+
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductFilter;
+import com.parashchak.online.shop.spring.boot.service.ProductService;
+import com.parashchak.online.shop.spring.boot.service.ProductSnapshotService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class ProductServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    // reads served from the in-memory snapshot instead of the database and the products cache
+    @Param({"false", "true"})
+    private boolean snapshot;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkCatalog.start(rows, WebApplicationType.NONE, Duration.ZERO,
+                "online-shop.snapshot.enabled=" + snapshot);
+        if (snapshot) {
+            // the catalog is seeded around the change feed
+            context.getBean(ProductSnapshotService.class).rebuild();
+        }
+        productService = context.getBean(ProductService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Product findById() {
+        return productService.findById(ThreadLocalRandom.current().nextInt(1, rows + 1));
+    }
+
+    @Benchmark
+    public List<Product> findByPrice() {
+        double minPrice = ThreadLocalRandom.current().nextInt(0, 990);
+        return productService.findFiltered(ProductFilter.builder()
+                .minPrice(minPrice)
+                .maxPrice(minPrice + 10)
+                .sort("price")
+                .limit(100)
+                .build());
+    }
+
+    @Benchmark
+    public List<Product> search() {
+        return productService.search("product " + ThreadLocalRandom.current().nextInt(1, rows + 1) + ",");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public List<Product> findAll() {
+        return productService.findAll();
+    }
+}
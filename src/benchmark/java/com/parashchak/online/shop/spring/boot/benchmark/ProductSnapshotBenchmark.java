@@ -0,0 +1,124 @@
+package com.parashchak.online.shop.spring.boot.benchmark;
+
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.service.ProductSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in the columnar {@link ProductSnapshot} against the same catalog held as entities
+ * in a map by id, as the products cache holds them. The heap retained by each and the pause
+ * of a full collection with each of them live are printed once per trial; run with -prof gc
+ * for the allocation per lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class ProductSnapshotBenchmark {
+
+    private static final double PRICE_RANGE = 10;
+
+    @Param({"1000000"})
+    private int rows;
+
+    private ProductSnapshot snapshot;
+    private Map<Integer, Product> entities;
+    private List<Product> entitiesByPrice;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        long empty = usedHeap();
+        snapshot = snapshot(rows);
+        long withSnapshot = usedHeap();
+        long snapshotPause = fullCollectionMillis();
+
+        entities = new HashMap<>();
+        BenchmarkCatalog.products(rows).forEach(product -> entities.put(product.getId(), product));
+        long withEntities = usedHeap();
+        long entitiesPause = fullCollectionMillis();
+        entitiesByPrice = entities.values().stream()
+                .sorted(Comparator.comparingDouble(Product::getPrice).thenComparingInt(Product::getId))
+                .toList();
+
+        System.out.printf("%n%d products: snapshot %d MB (%d bytes per product), entities %d MB (%d bytes per product)%n",
+                rows, (withSnapshot - empty) >> 20, (withSnapshot - empty) / rows,
+                (withEntities - withSnapshot) >> 20, (withEntities - withSnapshot) / rows);
+        System.out.printf("full collection: %d ms with the snapshot, %d ms with the snapshot and the entities%n",
+                snapshotPause, entitiesPause);
+    }
+
+    @Benchmark
+    public Product findByIdSnapshot() {
+        return snapshot.findById(randomId());
+    }
+
+    @Benchmark
+    public Product findByIdEntities() {
+        return entities.get(randomId());
+    }
+
+    @Benchmark
+    public List<Product> findByPriceSnapshot() {
+        double minPrice = randomPrice();
+        return snapshot.findByPriceOrderByPrice(minPrice, minPrice + PRICE_RANGE, false, 100);
+    }
+
+    /**
+     * The entities sorted by price once, as an index over them would keep them.
+     */
+    @Benchmark
+    public List<Product> findByPriceEntities() {
+        double minPrice = randomPrice();
+        int low = 0;
+        int high = entitiesByPrice.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (entitiesByPrice.get(middle).getPrice() < minPrice) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return entitiesByPrice.subList(low, Math.min(low + 100, entitiesByPrice.size())).stream()
+                .filter(product -> product.getPrice() <= minPrice + PRICE_RANGE)
+                .toList();
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(1, rows + 1);
+    }
+
+    private static double randomPrice() {
+        return ThreadLocalRandom.current().nextDouble(0, 1000 - PRICE_RANGE);
+    }
+
+    // the builder and its spare capacity are unreachable once this returns
+    private static ProductSnapshot snapshot(int rows) {
+        ProductSnapshot.Builder builder = ProductSnapshot.builder();
+        BenchmarkCatalog.products(rows).forEach(builder::add);
+        return builder.build(0);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long fullCollectionMillis() {
+        long start = System.nanoTime();
+        System.gc();
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,68 @@
+package com.parashchak.online.shop.spring.boot.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and tail latency of GET /product/{id} over HTTP with 1024 concurrent
+ * clients, served on platform threads (Tomcat pool of 200) or on virtual threads.
+ * Statements are delayed to model a remote database; the catalog is larger than
+ * the products cache, so most requests borrow a connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(1024)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class ProductThreadingBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"20", "200"})
+    private int poolSize;
+
+    @Param({"2"})
+    private int statementLatencyMillis;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkCatalog.start(ROWS, WebApplicationType.SERVLET, Duration.ofMillis(statementLatencyMillis),
+                "spring.threads.virtual.enabled=" + threads.equals("virtual"),
+                "spring.datasource.hikari.maximum-pool-size=" + poolSize);
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int findById() throws IOException, InterruptedException {
+        int id = ThreadLocalRandom.current().nextInt(1, ROWS + 1);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/product/" + id)).build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
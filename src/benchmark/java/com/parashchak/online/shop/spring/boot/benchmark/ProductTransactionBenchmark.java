@@ -0,0 +1,68 @@
+package com.parashchak.online.shop.spring.boot.benchmark;
+
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of loading a page of products in a read-write transaction, which keeps
+ * entity snapshots and dirty-checks them on flush, against a read-only one.
+ * Run with -prof gc to see the snapshot allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ProductTransactionBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    @Param({"10", "100", "1000"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkCatalog.start(ROWS, WebApplicationType.NONE);
+        productRepository = context.getBean(ProductRepository.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Product> readWriteTransaction() {
+        return readWrite.execute(status -> findPage());
+    }
+
+    @Benchmark
+    public List<Product> readOnlyTransaction() {
+        return readOnly.execute(status -> findPage());
+    }
+
+    private List<Product> findPage() {
+        int after = ThreadLocalRandom.current().nextInt(ROWS - pageSize);
+        return productRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.ofSize(pageSize));
+    }
+}
@@ -2,11 +2,13 @@ package com.parashchak.online.shop.spring.boot;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
-@SpringBootApplication
+// the R2DBC connection pool is set up by R2dbcConfig, a ConnectionFactory bean would disable the JDBC DataSource
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class OnlineShopSpringBootApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(OnlineShopSpringBootApplication.class, args);
     }
-}
\ No newline at end of file
+}
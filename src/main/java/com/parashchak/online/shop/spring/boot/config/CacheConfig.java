@@ -0,0 +1,36 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Caching advice is ordered outside the single flight and the transactional one, so
+ * evictions of transactional writes happen after commit and cache hits are not coalesced.
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 2)
+public class CacheConfig {
+    public static final String PRODUCTS_CACHE = "products";
+
+    // a synchronous load runs inside a hash table lock and pins the carrier of a virtual thread
+    // for the whole database call, an async one runs outside it
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public CacheManagerCustomizer<CaffeineCacheManager> virtualThreadCacheCustomizer(
+            @Value("${spring.cache.caffeine.spec}") String spec) {
+        return cacheManager -> {
+            cacheManager.setCaffeine(Caffeine.from(spec).executor(Executors.newVirtualThreadPerTaskExecutor()));
+            cacheManager.setAsyncCacheMode(true);
+        };
+    }
+}
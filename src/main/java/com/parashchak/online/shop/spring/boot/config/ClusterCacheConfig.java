@@ -0,0 +1,95 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import com.hazelcast.cache.HazelcastCachingProvider;
+import com.hazelcast.cache.HazelcastMemberCachingProvider;
+import com.hazelcast.config.CacheSimpleConfig;
+import com.hazelcast.config.CacheSimpleConfig.ExpiryPolicyFactoryConfig;
+import com.hazelcast.config.CacheSimpleConfig.ExpiryPolicyFactoryConfig.DurationConfig;
+import com.hazelcast.config.CacheSimpleConfig.ExpiryPolicyFactoryConfig.TimedExpiryPolicyFactoryConfig;
+import com.hazelcast.config.Config;
+import com.hazelcast.config.EvictionConfig;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.config.MaxSizePolicy;
+import com.hazelcast.core.HazelcastInstance;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachingConfigurer;
+import org.springframework.cache.interceptor.CacheResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.hazelcast.config.CacheSimpleConfig.ExpiryPolicyFactoryConfig.TimedExpiryPolicyFactoryConfig.ExpiryPolicyType.CREATED;
+
+/**
+ * Every node runs an embedded Hazelcast member. The members hold the Hibernate second-level
+ * cache, so an entry written or evicted by one node is seen by all of them, and carry the
+ * evictions of the node-local Spring caches to the other nodes.
+ */
+@Configuration
+@RequiredArgsConstructor
+@EnableConfigurationProperties(ClusterCacheProperties.class)
+public class ClusterCacheConfig implements CachingConfigurer {
+
+    // regions of the second-level cache
+    static final String PRODUCT_REGION = "product";
+    static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    private final ObjectProvider<ClusterCacheResolver> clusterCacheResolver;
+
+    @Override
+    public CacheResolver cacheResolver() {
+        return clusterCacheResolver.getObject();
+    }
+
+    @Bean
+    public ClusterCacheResolver clusterCacheResolver(CacheManager cacheManager, HazelcastInstance hazelcastInstance) {
+        return new ClusterCacheResolver(cacheManager, hazelcastInstance);
+    }
+
+    @Bean
+    public Config hazelcastConfig(ClusterCacheProperties properties) {
+        Config config = new Config();
+        config.setClusterName(properties.name());
+        config.setProperty("hazelcast.logging.type", "slf4j");
+        config.setProperty("hazelcast.phone.home.enabled", "false");
+        config.getNetworkConfig().setPort(properties.port());
+        JoinConfig join = config.getNetworkConfig().getJoin();
+        join.getMulticastConfig().setEnabled(false);
+        join.getAutoDetectionConfig().setEnabled(false);
+        join.getTcpIpConfig().setEnabled(true).setMembers(properties.members());
+
+        config.addCacheConfig(boundedRegion(PRODUCT_REGION, properties));
+        config.addCacheConfig(boundedRegion(QUERY_RESULTS_REGION, properties));
+        // a cached query is valid while its tables are not newer than it, the timestamps must outlive the queries
+        config.addCacheConfig(new CacheSimpleConfig().setName(UPDATE_TIMESTAMPS_REGION));
+        return config;
+    }
+
+    @Bean(destroyMethod = "close")
+    public javax.cache.CacheManager hibernateCacheManager(HazelcastInstance hazelcastInstance) {
+        return new HazelcastMemberCachingProvider().getCacheManager(null, null,
+                HazelcastCachingProvider.propertiesByInstanceItself(hazelcastInstance));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(javax.cache.CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private static CacheSimpleConfig boundedRegion(String name, ClusterCacheProperties properties) {
+        return new CacheSimpleConfig()
+                .setName(name)
+                .setEvictionConfig(new EvictionConfig()
+                        .setMaxSizePolicy(MaxSizePolicy.ENTRY_COUNT)
+                        .setSize(properties.maxSize()))
+                .setExpiryPolicyFactoryConfig(new ExpiryPolicyFactoryConfig(new TimedExpiryPolicyFactoryConfig(
+                        CREATED, new DurationConfig(properties.timeToLive().toSeconds(), TimeUnit.SECONDS))));
+    }
+}
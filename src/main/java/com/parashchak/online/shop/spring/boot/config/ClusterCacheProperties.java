@@ -0,0 +1,20 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The embedded Hazelcast cluster the application nodes form. A node without members
+ * runs a cluster of its own. Max size and time to live apply to the entity and query
+ * regions of the second-level cache.
+ */
+@ConfigurationProperties("online-shop.cache.cluster")
+public record ClusterCacheProperties(@DefaultValue("online-shop") String name,
+                                     @DefaultValue List<String> members,
+                                     @DefaultValue("5701") int port,
+                                     @DefaultValue("10000") int maxSize,
+                                     @DefaultValue("10m") Duration timeToLive) {
+}
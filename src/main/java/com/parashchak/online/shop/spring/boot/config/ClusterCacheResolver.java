@@ -0,0 +1,159 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+import com.hazelcast.topic.Message;
+import com.hazelcast.topic.MessageListener;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.SimpleCacheResolver;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Resolves the caches of the caching annotations like {@link SimpleCacheResolver} and makes
+ * their evictions cluster-wide. The caches stay local to each node: an eviction is applied
+ * locally, then published on a Hazelcast topic, and every other member applies it to its own cache.
+ */
+public class ClusterCacheResolver extends SimpleCacheResolver implements MessageListener<ClusterCacheResolver.Eviction> {
+
+    static final String EVICTIONS_TOPIC = "cache-evictions";
+
+    private final ITopic<Eviction> evictions;
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public ClusterCacheResolver(CacheManager cacheManager, HazelcastInstance hazelcastInstance) {
+        super(cacheManager);
+        evictions = hazelcastInstance.getTopic(EVICTIONS_TOPIC);
+        evictions.addMessageListener(this);
+    }
+
+    @Override
+    public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
+        return super.resolveCaches(context).stream()
+                .map(cache -> caches.computeIfAbsent(cache.getName(), name -> new EvictionPublishingCache(cache)))
+                .toList();
+    }
+
+    /**
+     * Evicts the key on this node and on the other members, for writes made outside
+     * the caching annotations.
+     */
+    public void evict(String cacheName, Object key) {
+        Cache cache = getCacheManager().getCache(cacheName);
+        if (cache != null) {
+            caches.computeIfAbsent(cacheName, name -> new EvictionPublishingCache(cache)).evict(key);
+        }
+    }
+
+    @Override
+    public void onMessage(Message<Eviction> message) {
+        if (message.getPublishingMember().localMember()) {
+            return;
+        }
+        Eviction eviction = message.getMessageObject();
+        Cache cache = getCacheManager().getCache(eviction.cacheName());
+        if (cache == null) {
+            return;
+        }
+        if (eviction.key() == null) {
+            cache.clear();
+        } else {
+            cache.evict(eviction.key());
+        }
+    }
+
+    /**
+     * An evicted key, or all keys of the cache when the key is null.
+     */
+    record Eviction(String cacheName, Object key) implements Serializable {
+    }
+
+    private final class EvictionPublishingCache implements Cache {
+
+        private final Cache cache;
+
+        private EvictionPublishingCache(Cache cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public String getName() {
+            return cache.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return cache.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return cache.get(key);
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return cache.get(key, type);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return cache.get(key, valueLoader);
+        }
+
+        @Override
+        public CompletableFuture<?> retrieve(Object key) {
+            return cache.retrieve(key);
+        }
+
+        @Override
+        public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+            return cache.retrieve(key, valueLoader);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            cache.put(key, value);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            return cache.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            cache.evict(key);
+            evictions.publish(new Eviction(getName(), key));
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            boolean evicted = cache.evictIfPresent(key);
+            // another node may hold the key even if this one does not
+            evictions.publish(new Eviction(getName(), key));
+            return evicted;
+        }
+
+        @Override
+        public void clear() {
+            cache.clear();
+            evictions.publish(new Eviction(getName(), null));
+        }
+
+        @Override
+        public boolean invalidate() {
+            boolean invalidated = cache.invalidate();
+            evictions.publish(new Eviction(getName(), null));
+            return invalidated;
+        }
+    }
+}
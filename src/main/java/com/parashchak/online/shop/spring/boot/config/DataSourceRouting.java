@@ -0,0 +1,43 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread hint for {@link ReplicaRoutingDataSource}: while set, read-only
+ * transactions take their connection from the primary as well.
+ */
+public final class DataSourceRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private DataSourceRouting() {
+    }
+
+    public static boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get() != null;
+    }
+
+    public static void requirePrimary() {
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+    }
+
+    public static void clear() {
+        PRIMARY_REQUIRED.remove();
+    }
+
+    /**
+     * Runs the action with reads routed to the primary. The connection is taken lazily,
+     * so this works inside a read-only transaction that has not run a statement yet.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        if (isPrimaryRequired()) {
+            return action.get();
+        }
+        requirePrimary();
+        try {
+            return action.get();
+        } finally {
+            clear();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.parashchak.online.shop.spring.boot.repository.ProductChangeRepository;
+import com.parashchak.online.shop.spring.boot.repository.ProductRepository;
+import com.parashchak.online.shop.spring.boot.service.ProductChangeFeed;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+/**
+ * Changes are kept for online-shop.changes.retention, a consumer further behind syncs from the catalog.
+ * A change number not committed within online-shop.changes.commit-timeout is given up by the readers,
+ * a write has to commit within it after recording its changes.
+ * A consumer waits at most online-shop.changes.max-wait, which has to stay below spring.mvc.async.request-timeout.
+ */
+@Configuration
+@EnableScheduling
+public class ProductChangeConfig {
+
+    @Bean
+    public ProductChangeFeed productChangeFeed(ProductChangeRepository productChangeRepository,
+                                               ProductRepository productRepository,
+                                               EntityManager entityManager,
+                                               TransactionTemplate transactionTemplate,
+                                               HazelcastInstance hazelcastInstance,
+                                               @Value("${online-shop.changes.retention:7d}") Duration retention,
+                                               @Value("${online-shop.changes.commit-timeout:10s}") Duration commitTimeout,
+                                               @Value("${online-shop.changes.max-wait:30s}") Duration maxWait) {
+        return new ProductChangeFeed(productChangeRepository, productRepository, entityManager,
+                transactionTemplate, hazelcastInstance, retention, commitTimeout, maxWait);
+    }
+}
@@ -0,0 +1,36 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import com.parashchak.online.shop.spring.boot.service.ProductChangeFeed;
+import com.parashchak.online.shop.spring.boot.service.ProductServiceImpl;
+import com.parashchak.online.shop.spring.boot.service.ProductSnapshotService;
+import com.parashchak.online.shop.spring.boot.service.ProductWriteBehind;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+
+/**
+ * Catalog reads are served from an in-memory snapshot when online-shop.snapshot.enabled is set,
+ * the service serving them takes the place of {@link ProductServiceImpl} wherever a ProductService
+ * is injected.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "online-shop.snapshot", name = "enabled", havingValue = "true")
+public class ProductSnapshotConfig {
+
+    /**
+     * Waits for changes as long as a consumer of the change feed may.
+     */
+    @Bean
+    @Primary
+    public ProductSnapshotService productSnapshotService(ProductServiceImpl productService,
+                                                         ProductChangeFeed productChangeFeed,
+                                                         ObjectProvider<ProductWriteBehind> productWriteBehind,
+                                                         @Value("${online-shop.changes.max-wait:30s}") Duration wait) {
+        return new ProductSnapshotService(productService, productChangeFeed, productWriteBehind, wait);
+    }
+}
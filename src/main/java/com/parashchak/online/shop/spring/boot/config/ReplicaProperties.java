@@ -0,0 +1,19 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Read replicas of the primary data source. Username and password default to the primary ones,
+ * the pools are sized like the primary pool.
+ */
+@ConfigurationProperties("online-shop.datasource")
+public record ReplicaProperties(List<Replica> replicas,
+                                @DefaultValue("5s") Duration readYourWritesWindow) {
+
+    public record Replica(String url, String username, String password) {
+    }
+}
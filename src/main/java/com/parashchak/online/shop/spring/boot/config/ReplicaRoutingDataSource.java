@@ -0,0 +1,148 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives read-only transactions a connection from one of the replicas, round robin,
+ * and everything else a connection from the primary. A replica that fails to hand out
+ * a connection is skipped until the periodic check finds it valid again, its reads
+ * go to the primary meanwhile.
+ * <p>
+ * The read-only flag is set after the transaction manager asks for a connection,
+ * so this data source has to sit behind a LazyConnectionDataSourceProxy.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    static final String PRIMARY = "primary";
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicaDataSources) {
+        this.primary = primary;
+        Map<Object, Object> targetDataSources = new LinkedHashMap<>();
+        targetDataSources.put(PRIMARY, primary);
+        for (int i = 0; i < replicaDataSources.size(); i++) {
+            Replica replica = new Replica("replica-" + i, replicaDataSources.get(i));
+            targetDataSources.put(replica.key, replica.dataSource);
+            replicas.add(replica);
+        }
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Replica replica = selectReplica();
+        return replica == null ? PRIMARY : replica.key;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = selectReplica();
+        if (replica != null) {
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException exception) {
+                markUnhealthy(replica, exception);
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Replica replica = selectReplica();
+        if (replica != null) {
+            try {
+                return replica.dataSource.getConnection(username, password);
+            } catch (SQLException exception) {
+                markUnhealthy(replica, exception);
+            }
+        }
+        return primary.getConnection(username, password);
+    }
+
+    @Scheduled(fixedDelayString = "${online-shop.datasource.replica-check-interval:PT5S}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException exception) {
+                healthy = false;
+            }
+            if (healthy && !replica.healthy) {
+                log.info("{} is available again, routing reads to it", replica.key);
+            } else if (!healthy && replica.healthy) {
+                log.warn("{} failed the health check, routing its reads to the primary", replica.key);
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    boolean isHealthy(int replica) {
+        return replicas.get(replica).healthy;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private Replica selectReplica() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || DataSourceRouting.isPrimaryRequired()) {
+            return null;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private static void markUnhealthy(Replica replica, SQLException exception) {
+        if (replica.healthy) {
+            log.warn("{} refused a connection, routing its reads to the primary", replica.key, exception);
+            replica.healthy = false;
+        }
+    }
+
+    private static final class Replica {
+
+        private final String key;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(String key, DataSource dataSource) {
+            this.key = key;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import net.ttddyy.dsproxy.QueryType;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statements run by the current thread while its statistics are started, counted per type
+ * together with their total time. The most repeated identical SELECT is kept as well:
+ * one query per loaded row is the mark of an N+1 access pattern.
+ */
+public final class SqlStatistics {
+
+    private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private final Map<QueryType, Integer> counts = new EnumMap<>(QueryType.class);
+    private final Map<String, Integer> selects = new HashMap<>();
+    private int statements;
+    private long timeNanos;
+    private String repeatedSelect;
+    private int repeatedSelects;
+
+    private SqlStatistics() {
+    }
+
+    public static SqlStatistics start() {
+        SqlStatistics statistics = new SqlStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    /**
+     * The statistics of the current thread, or null when they are not started.
+     */
+    public static SqlStatistics current() {
+        return CURRENT.get();
+    }
+
+    public static SqlStatistics stop() {
+        SqlStatistics statistics = CURRENT.get();
+        CURRENT.remove();
+        return statistics;
+    }
+
+    void record(QueryType type, String sql, long nanos) {
+        statements++;
+        timeNanos += nanos;
+        counts.merge(type, 1, Integer::sum);
+        if (type == QueryType.SELECT) {
+            int executions = selects.merge(sql, 1, Integer::sum);
+            if (executions > repeatedSelects) {
+                repeatedSelects = executions;
+                repeatedSelect = sql;
+            }
+        }
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getSelects() {
+        return count(QueryType.SELECT);
+    }
+
+    public int getInserts() {
+        return count(QueryType.INSERT);
+    }
+
+    public int getUpdates() {
+        return count(QueryType.UPDATE);
+    }
+
+    public int getDeletes() {
+        return count(QueryType.DELETE);
+    }
+
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    /**
+     * Executions of the most repeated identical SELECT.
+     */
+    public int getRepeatedSelects() {
+        return repeatedSelects;
+    }
+
+    public String getRepeatedSelect() {
+        return repeatedSelect;
+    }
+
+    private int count(QueryType type) {
+        return counts.getOrDefault(type, 0);
+    }
+
+    @Override
+    public String toString() {
+        return "statements=" + statements + " selects=" + getSelects() + " inserts=" + getInserts()
+                + " updates=" + getUpdates() + " deletes=" + getDeletes() + " timeMicros=" + timeNanos / 1000;
+    }
+}
@@ -0,0 +1,45 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Every statement goes through a datasource-proxy around the application's DataSource,
+ * which replaces Hibernate's show_sql: statements are counted per request and only
+ * the slow ones are logged.
+ */
+@Configuration
+public class SqlStatisticsConfig {
+
+    // the DataSource used by JPA, with read replicas the routing proxy in front of all pools
+    private static final String DATA_SOURCE = "dataSource";
+
+    @Bean
+    public SqlStatisticsListener sqlStatisticsListener(
+            @Value("${online-shop.sql-log.slow-query-threshold:200ms}") Duration slowQueryThreshold) {
+        return new SqlStatisticsListener(slowQueryThreshold);
+    }
+
+    @Bean
+    public static BeanPostProcessor sqlStatisticsDataSourcePostProcessor(
+            ObjectProvider<SqlStatisticsListener> sqlStatisticsListener) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && DATA_SOURCE.equals(beanName)) {
+                    return ProxyDataSourceBuilder.create(beanName, dataSource)
+                            .listener(sqlStatisticsListener.getObject())
+                            .buildProxy();
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,53 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryUtils;
+import net.ttddyy.dsproxy.listener.logging.DefaultQueryLogEntryCreator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Adds every statement to the {@link SqlStatistics} of the executing thread and writes
+ * the ones slower than the threshold, with their bind parameters, to the "slow-query" logger.
+ * Faster statements are not formatted at all.
+ */
+public class SqlStatisticsListener implements QueryExecutionListener {
+
+    private static final Logger SLOW_QUERY_LOG = LoggerFactory.getLogger("slow-query");
+    private static final String START = SqlStatisticsListener.class.getName() + ".start";
+
+    private final long slowQueryThresholdNanos;
+    private final DefaultQueryLogEntryCreator logEntryCreator = new DefaultQueryLogEntryCreator();
+
+    public SqlStatisticsListener(Duration slowQueryThreshold) {
+        this.slowQueryThresholdNanos = slowQueryThreshold.toNanos();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        // the proxy's own stopwatch has millisecond resolution
+        execInfo.addCustomValue(START, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long nanos = System.nanoTime() - execInfo.getCustomValue(START, Long.class);
+        SqlStatistics statistics = SqlStatistics.current();
+        if (statistics != null) {
+            // the time of a statement batch is split between its statements
+            long nanosPerQuery = nanos / Math.max(1, queryInfoList.size());
+            for (QueryInfo queryInfo : queryInfoList) {
+                statistics.record(QueryUtils.getQueryType(queryInfo.getQuery()), queryInfo.getQuery(), nanosPerQuery);
+            }
+        }
+        if (nanos >= slowQueryThresholdNanos && SLOW_QUERY_LOG.isWarnEnabled()) {
+            SLOW_QUERY_LOG.warn("timeMicros={} {}", nanos / 1000,
+                    logEntryCreator.getLogEntry(execInfo, queryInfoList, false, false, false));
+        }
+    }
+}
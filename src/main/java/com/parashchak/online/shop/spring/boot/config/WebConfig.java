@@ -0,0 +1,63 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.parashchak.online.shop.spring.boot.web.AccessLogInterceptor;
+import com.parashchak.online.shop.spring.boot.web.ProductJsonCache;
+import com.parashchak.online.shop.spring.boot.web.ReadYourWritesInterceptor;
+import com.parashchak.online.shop.spring.boot.web.SqlStatisticsInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final AccessLogInterceptor accessLogInterceptor;
+    private final SqlStatisticsInterceptor sqlStatisticsInterceptor;
+    // only present when read replicas are configured
+    private final ObjectProvider<ReadYourWritesInterceptor> readYourWritesInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(accessLogInterceptor);
+        // completes before the access log, which writes its statistics
+        registry.addInterceptor(sqlStatisticsInterceptor);
+        readYourWritesInterceptor.ifAvailable(registry::addInterceptor);
+    }
+
+    /**
+     * Bounded like the products cache it follows.
+     */
+    @Bean
+    public ProductJsonCache productJsonCache(ObjectMapper objectMapper,
+                                             @Value("${spring.cache.caffeine.spec}") String spec) {
+        return new ProductJsonCache(objectMapper, spec);
+    }
+
+    /**
+     * Binary JSON for clients sending Accept: application/x-jackson-smile, built from Boot's
+     * builder so it writes the same fields and date format as the JSON converter.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    /**
+     * Binary JSON for clients sending Accept: application/cbor.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,38 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parashchak.online.shop.spring.boot.repository.ProductRepository;
+import com.parashchak.online.shop.spring.boot.repository.WriteBehindCheckpointRepository;
+import com.parashchak.online.shop.spring.boot.service.ProductChangeFeed;
+import com.parashchak.online.shop.spring.boot.service.ProductSearchIndex;
+import com.parashchak.online.shop.spring.boot.service.ProductWriteBehind;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Product adds and updates are acknowledged once journaled and flushed to the database
+ * in the background when online-shop.write-behind.enabled is set.
+ */
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(WriteBehindProperties.class)
+@ConditionalOnProperty(prefix = "online-shop.write-behind", name = "enabled", havingValue = "true")
+public class WriteBehindConfig {
+
+    @Bean
+    public ProductWriteBehind productWriteBehind(WriteBehindProperties properties,
+                                                 ObjectMapper objectMapper,
+                                                 ProductRepository productRepository,
+                                                 WriteBehindCheckpointRepository checkpointRepository,
+                                                 TransactionTemplate transactionTemplate,
+                                                 ProductSearchIndex productSearchIndex,
+                                                 ClusterCacheResolver clusterCacheResolver,
+                                                 ProductChangeFeed productChangeFeed) {
+        return new ProductWriteBehind(properties, objectMapper, productRepository, checkpointRepository,
+                transactionTemplate, productSearchIndex, clusterCacheResolver, productChangeFeed);
+    }
+}
@@ -0,0 +1,16 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+/**
+ * Write-behind mode of product adds and updates. Capacity bounds the writes waiting
+ * for the database, max flush size the writes per flush transaction.
+ */
+@ConfigurationProperties("online-shop.write-behind")
+public record WriteBehindProperties(@DefaultValue("data/write-behind.journal") Path journal,
+                                    @DefaultValue("10000") int capacity,
+                                    @DefaultValue("1000") int maxFlushSize) {
+}
@@ -0,0 +1,16 @@
+package com.parashchak.online.shop.spring.boot.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.http.HttpStatus;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchResult {
+    private int index;
+    private Integer id;
+    private HttpStatus status;
+    private String message;
+}
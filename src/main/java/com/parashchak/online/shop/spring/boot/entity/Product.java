@@ -1,8 +1,12 @@
 package com.parashchak.online.shop.spring.boot.entity;
 
+import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.UpdateTimestamp;
 
-import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
@@ -12,6 +16,8 @@ import java.time.LocalDateTime;
 @ToString
 @AllArgsConstructor
 @NoArgsConstructor
+@DynamicUpdate
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product")
 @Table(name = "products")
 public class Product {
 
@@ -19,7 +25,7 @@ public class Product {
     @SequenceGenerator(
             name = "products_id_seq",
             sequenceName = "products_id_seq",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(
             strategy = GenerationType.SEQUENCE,
@@ -30,4 +36,8 @@ public class Product {
     private double price;
     private LocalDateTime creationDate;
     private String description;
+    @Version
+    private Long version;
+    @UpdateTimestamp
+    private LocalDateTime lastModified;
 }
\ No newline at end of file
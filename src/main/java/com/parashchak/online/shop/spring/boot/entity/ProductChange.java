@@ -0,0 +1,36 @@
+package com.parashchak.online.shop.spring.boot.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A change of a product, written to the outbox in the transaction of the change.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "product_changes")
+public class ProductChange {
+
+    @Id
+    @Column(name = "sequence_number")
+    private long sequence;
+    private int productId;
+    @Enumerated(EnumType.STRING)
+    private Type type;
+    private LocalDateTime changedAt;
+    // the current state of the product when the change is read, null once it is deleted
+    @Transient
+    private Product product;
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+}
@@ -0,0 +1,16 @@
+package com.parashchak.online.shop.spring.boot.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChanges {
+    private List<ProductChange> changes;
+    // the since of the next request
+    private long last;
+}
@@ -0,0 +1,34 @@
+package com.parashchak.online.shop.spring.boot.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Query parameters of a filtered catalog request. Price bounds are inclusive, the creation
+ * window includes createdFrom and excludes createdTo. Sort is one of price, name or
+ * creationDate, prefixed with '-' for descending order.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilter {
+    private Double minPrice;
+    private Double maxPrice;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdFrom;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdTo;
+    private String sort;
+    private Integer limit;
+
+    public boolean isEmpty() {
+        return minPrice == null && maxPrice == null && createdFrom == null && createdTo == null
+                && sort == null && limit == null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.parashchak.online.shop.spring.boot.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPage {
+    private List<Product> products;
+    private String next;
+}
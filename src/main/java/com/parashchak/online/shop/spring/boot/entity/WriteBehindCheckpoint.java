@@ -0,0 +1,26 @@
+package com.parashchak.online.shop.spring.boot.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Sequence of the last write of a write-behind journal that reached the database,
+ * committed together with the write.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "write_behind_checkpoints")
+public class WriteBehindCheckpoint {
+
+    @Id
+    private String journal;
+    private long flushedSequence;
+}
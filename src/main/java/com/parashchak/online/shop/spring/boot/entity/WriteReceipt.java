@@ -0,0 +1,19 @@
+package com.parashchak.online.shop.spring.boot.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WriteReceipt {
+    private String trackingId;
+    private Status status;
+    private Integer id;
+    private String message;
+
+    public enum Status {
+        PENDING, FLUSHED, FAILED
+    }
+}
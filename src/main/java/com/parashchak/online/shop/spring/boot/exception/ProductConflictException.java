@@ -0,0 +1,11 @@
+package com.parashchak.online.shop.spring.boot.exception;
+
+/**
+ * A request the current state of the service cannot serve, answered with 409.
+ */
+public class ProductConflictException extends IllegalStateException {
+
+    public ProductConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.parashchak.online.shop.spring.boot.exception;
+
+/**
+ * A product or a write of one that does not exist, answered with 404.
+ */
+public class ProductNotFoundException extends IllegalStateException {
+
+    public ProductNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -1,22 +1,97 @@
 package com.parashchak.online.shop.spring.boot.exception.handler;
 
 import com.parashchak.online.shop.spring.boot.entity.ErrorMessage;
+import com.parashchak.online.shop.spring.boot.exception.ProductConflictException;
+import com.parashchak.online.shop.spring.boot.exception.ProductNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @ControllerAdvice
 @ResponseStatus
+@RequiredArgsConstructor
 public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionHandler {
 
-    @ExceptionHandler(IllegalStateException.class)
-    public ResponseEntity<ErrorMessage> departmentNotFoundException(IllegalStateException exception,
-                                                                    WebRequest request) {
+    private final MeterRegistry meterRegistry;
+
+    @ExceptionHandler(ProductNotFoundException.class)
+    public ResponseEntity<ErrorMessage> notFoundException(ProductNotFoundException exception,
+                                                          WebRequest request) {
+        countError(exception, HttpStatus.NOT_FOUND);
         ErrorMessage errorMessage = new ErrorMessage(HttpStatus.NOT_FOUND, exception.getMessage());
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorMessage);
     }
+
+    @ExceptionHandler(ProductConflictException.class)
+    public ResponseEntity<ErrorMessage> conflictException(ProductConflictException exception,
+                                                          WebRequest request) {
+        countError(exception, HttpStatus.CONFLICT);
+        ErrorMessage errorMessage = new ErrorMessage(HttpStatus.CONFLICT, exception.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorMessage);
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<ErrorMessage> internalServerErrorException(IllegalStateException exception,
+                                                                     WebRequest request) {
+        countError(exception, HttpStatus.INTERNAL_SERVER_ERROR);
+        ErrorMessage errorMessage = new ErrorMessage(HttpStatus.INTERNAL_SERVER_ERROR, exception.getMessage());
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorMessage);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorMessage> badRequestException(IllegalArgumentException exception,
+                                                            WebRequest request) {
+        countError(exception, HttpStatus.BAD_REQUEST);
+        ErrorMessage errorMessage = new ErrorMessage(HttpStatus.BAD_REQUEST, exception.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorMessage);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorMessage> preconditionFailedException(OptimisticLockingFailureException exception,
+                                                                    WebRequest request) {
+        countError(exception, HttpStatus.PRECONDITION_FAILED);
+        ErrorMessage errorMessage = new ErrorMessage(HttpStatus.PRECONDITION_FAILED, exception.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(errorMessage);
+    }
+
+    @ExceptionHandler(CannotCreateTransactionException.class)
+    public ResponseEntity<ErrorMessage> serviceUnavailableException(CannotCreateTransactionException exception,
+                                                                    WebRequest request) {
+        countError(exception, HttpStatus.SERVICE_UNAVAILABLE);
+        ErrorMessage errorMessage = new ErrorMessage(HttpStatus.SERVICE_UNAVAILABLE, "database connection unavailable");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorMessage);
+    }
+
+    @ExceptionHandler(QueryTimeoutException.class)
+    public ResponseEntity<ErrorMessage> queryTimeoutException(QueryTimeoutException exception,
+                                                              WebRequest request) {
+        countError(exception, HttpStatus.SERVICE_UNAVAILABLE);
+        ErrorMessage errorMessage = new ErrorMessage(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorMessage);
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ErrorMessage> rejectedExecutionException(RejectedExecutionException exception,
+                                                                   WebRequest request) {
+        countError(exception, HttpStatus.SERVICE_UNAVAILABLE);
+        ErrorMessage errorMessage = new ErrorMessage(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorMessage);
+    }
+
+    private void countError(Exception exception, HttpStatus status) {
+        meterRegistry.counter("product.errors",
+                "exception", exception.getClass().getSimpleName(),
+                "status", String.valueOf(status.value())).increment();
+    }
 }
\ No newline at end of file
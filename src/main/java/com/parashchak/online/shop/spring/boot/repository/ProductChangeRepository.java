@@ -0,0 +1,35 @@
+package com.parashchak.online.shop.spring.boot.repository;
+
+import com.parashchak.online.shop.spring.boot.entity.ProductChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ProductChangeRepository extends JpaRepository<ProductChange, Long> {
+
+    List<ProductChange> findBySequenceGreaterThanOrderBySequenceAsc(long sequence, Pageable pageable);
+
+    List<ProductChange> findBySequenceLessThanOrderBySequenceDesc(long sequence, Pageable pageable);
+
+    @Query(value = "select nextval('product_changes_seq') from generate_series(1, :count)", nativeQuery = true)
+    List<Long> nextSequences(int count);
+
+    @Query(value = "select purged_sequence from product_changes_purge", nativeQuery = true)
+    long findPurgedSequence();
+
+    @Query("select min(c.sequence) from ProductChange c where c.changedAt >= :since")
+    Long findFirstSequenceChangedSince(LocalDateTime since);
+
+    @Modifying
+    @Query(value = "update product_changes_purge set purged_sequence = :sequence where purged_sequence < :sequence",
+            nativeQuery = true)
+    void updatePurgedSequence(long sequence);
+
+    @Modifying
+    @Query("delete from ProductChange c where c.sequence <= :sequence")
+    int deleteBySequenceUpTo(long sequence);
+}
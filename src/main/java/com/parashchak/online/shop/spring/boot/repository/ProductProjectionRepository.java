@@ -0,0 +1,20 @@
+package com.parashchak.online.shop.spring.boot.repository;
+
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ProductProjectionRepository {
+
+    /**
+     * Selects only the given attributes of the matching products, as field name to value
+     * maps in field order. Nothing is loaded into the persistence context.
+     *
+     * @param limit maximum number of rows, 0 for all of them
+     */
+    List<Map<String, Object>> findFields(List<String> fields, Specification<Product> specification,
+                                         Sort sort, int limit);
+}
@@ -0,0 +1,60 @@
+package com.parashchak.online.shop.spring.boot.repository;
+
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * R2DBC reads of the products table. Rows are mapped by hand, so Product stays a
+ * plain JPA entity and Spring Data does not see two stores for it.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductReactiveRepository {
+
+    private static final String SELECT_PRODUCTS =
+            "select id, name, price, creation_date, description, version, last_modified from products";
+    private static final int FETCH_SIZE = 1000;
+
+    private final DatabaseClient databaseClient;
+
+    public Flux<Product> findAllByOrderByIdAsc() {
+        return databaseClient.sql(SELECT_PRODUCTS + " order by id")
+                .filter(statement -> statement.fetchSize(FETCH_SIZE))
+                .map(ProductReactiveRepository::toProduct)
+                .all();
+    }
+
+    public Mono<Product> findById(int id) {
+        return databaseClient.sql(SELECT_PRODUCTS + " where id = :id")
+                .bind("id", id)
+                .map(ProductReactiveRepository::toProduct)
+                .one();
+    }
+
+    public Flux<Product> findAllById(Collection<Integer> ids) {
+        return databaseClient.sql(SELECT_PRODUCTS + " where id in (:ids)")
+                .bind("ids", ids)
+                .map(ProductReactiveRepository::toProduct)
+                .all();
+    }
+
+    private static Product toProduct(Readable row) {
+        return Product.builder()
+                .id(row.get("id", Integer.class))
+                .name(row.get("name", String.class))
+                .price(row.get("price", Double.class))
+                .creationDate(row.get("creation_date", LocalDateTime.class))
+                .description(row.get("description", String.class))
+                .version(row.get("version", Long.class))
+                .lastModified(row.get("last_modified", LocalDateTime.class))
+                .build();
+    }
+}
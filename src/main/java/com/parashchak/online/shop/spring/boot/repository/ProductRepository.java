@@ -1,10 +1,46 @@
 package com.parashchak.online.shop.spring.boot.repository;
 
 import com.parashchak.online.shop.spring.boot.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface ProductRepository extends JpaRepository<Product, Integer> {
-    List<Product> findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(String name, String description);
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+public interface ProductRepository extends JpaRepository<Product, Integer>, JpaSpecificationExecutor<Product>,
+        ProductProjectionRepository {
+
+    /**
+     * Cached in the query cache, the products themselves come from the second-level cache.
+     */
+    @Override
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<Product> findAllById(Iterable<Integer> ids);
+
+    List<Product> findByIdGreaterThanOrderByIdAsc(int id, Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    Stream<Product> streamAllByOrderByIdAsc();
+
+    @Query("select p.id from Product p where p.id in :ids")
+    List<Integer> findExistingIds(Collection<Integer> ids);
+
+    @Modifying
+    @Transactional
+    @Query("delete from Product p where p.id = :id")
+    int deleteProductById(int id);
 }
\ No newline at end of file
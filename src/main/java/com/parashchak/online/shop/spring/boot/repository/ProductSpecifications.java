@@ -0,0 +1,57 @@
+package com.parashchak.online.shop.spring.boot.repository;
+
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductFilter;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Predicates of {@link ProductFilter}. Each one is a range on a single column,
+ * so it is served by that column's index.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> matching(ProductFilter filter) {
+        List<Specification<Product>> specifications = new ArrayList<>();
+        if (filter.getMinPrice() != null) {
+            specifications.add(priceAtLeast(filter.getMinPrice()));
+        }
+        if (filter.getMaxPrice() != null) {
+            specifications.add(priceAtMost(filter.getMaxPrice()));
+        }
+        if (filter.getCreatedFrom() != null) {
+            specifications.add(createdFrom(filter.getCreatedFrom()));
+        }
+        if (filter.getCreatedTo() != null) {
+            specifications.add(createdBefore(filter.getCreatedTo()));
+        }
+        return Specification.allOf(specifications);
+    }
+
+    public static Specification<Product> idIn(Collection<Integer> ids) {
+        return (root, query, builder) -> root.get("id").in(ids);
+    }
+
+    public static Specification<Product> priceAtLeast(double price) {
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get("price"), price);
+    }
+
+    public static Specification<Product> priceAtMost(double price) {
+        return (root, query, builder) -> builder.lessThanOrEqualTo(root.get("price"), price);
+    }
+
+    public static Specification<Product> createdFrom(LocalDateTime creationDate) {
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get("creationDate"), creationDate);
+    }
+
+    public static Specification<Product> createdBefore(LocalDateTime creationDate) {
+        return (root, query, builder) -> builder.lessThan(root.get("creationDate"), creationDate);
+    }
+}
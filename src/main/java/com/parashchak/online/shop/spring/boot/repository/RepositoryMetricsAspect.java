@@ -0,0 +1,52 @@
+package com.parashchak.online.shop.spring.boot.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Count and duration of every {@link ProductRepository} call, as the
+ * product.repository timer tagged by method and outcome. Timers are looked up
+ * once per method and outcome, so the hot path only records a duration.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+
+    private static final String METRIC_NAME = "product.repository";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> successTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> failureTimers = new ConcurrentHashMap<>();
+
+    @Around("this(com.parashchak.online.shop.spring.boot.repository.ProductRepository)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            timer(successTimers, method, "success").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable throwable) {
+            timer(failureTimers, method, "failure").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw throwable;
+        }
+    }
+
+    private Timer timer(Map<String, Timer> timers, String method, String outcome) {
+        return timers.computeIfAbsent(method, key -> Timer.builder(METRIC_NAME)
+                .description("ProductRepository calls")
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+}
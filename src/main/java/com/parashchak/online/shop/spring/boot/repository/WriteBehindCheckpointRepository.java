@@ -0,0 +1,7 @@
+package com.parashchak.online.shop.spring.boot.repository;
+
+import com.parashchak.online.shop.spring.boot.entity.WriteBehindCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface WriteBehindCheckpointRepository extends JpaRepository<WriteBehindCheckpoint, String> {
+}
@@ -0,0 +1,57 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread version of the catalog view being read: the change sequence read in the same
+ * transaction as the view, before it. A view without a version, joined from another thread
+ * or showing pending writes, is not validated.
+ */
+public final class CatalogVersion {
+
+    private static final ThreadLocal<Tracked> TRACKED = new ThreadLocal<>();
+
+    private CatalogVersion() {
+    }
+
+    /**
+     * Runs the read and returns its view with the version it recorded, null when it recorded none.
+     */
+    public static <T> Versioned<T> track(Supplier<T> read) {
+        Tracked tracked = new Tracked();
+        TRACKED.set(tracked);
+        try {
+            T view = read.get();
+            return new Versioned<>(view, tracked.unknown ? null : tracked.version);
+        } finally {
+            TRACKED.remove();
+        }
+    }
+
+    public static boolean isTracked() {
+        return TRACKED.get() != null;
+    }
+
+    public static void record(long version) {
+        Tracked tracked = TRACKED.get();
+        if (tracked != null) {
+            // a view read in several steps is as old as its oldest one
+            tracked.version = tracked.version == null ? version : Math.min(tracked.version, version);
+        }
+    }
+
+    public static void recordUnknown() {
+        Tracked tracked = TRACKED.get();
+        if (tracked != null) {
+            tracked.unknown = true;
+        }
+    }
+
+    public record Versioned<T>(T view, Long version) {
+    }
+
+    private static final class Tracked {
+        private Long version;
+        private boolean unknown;
+    }
+}
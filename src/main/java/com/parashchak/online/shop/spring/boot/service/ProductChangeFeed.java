@@ -0,0 +1,269 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+import com.hazelcast.topic.Message;
+import com.hazelcast.topic.MessageListener;
+import com.parashchak.online.shop.spring.boot.config.DataSourceRouting;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductChange;
+import com.parashchak.online.shop.spring.boot.entity.ProductChanges;
+import com.parashchak.online.shop.spring.boot.repository.ProductChangeRepository;
+import com.parashchak.online.shop.spring.boot.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Outbox of product changes and the feed reading it. Changes are numbered from a database
+ * sequence, so writes do not wait for each other, but a number can commit after a higher
+ * one. A number missing between two changes is taken to be held by an open transaction,
+ * and the feed stops before it, until the change after it is older than the commit timeout
+ * and the number is given up. So a consumer that reads the changes after the last sequence
+ * it saw misses none of a transaction committing within that timeout. After a commit the
+ * last sequence is published on a Hazelcast topic, which wakes the consumers waiting for
+ * changes on every node.
+ */
+@Slf4j
+public class ProductChangeFeed implements MessageListener<Long>, DisposableBean {
+
+    static final String CHANGES_TOPIC = "product-changes";
+    // the latest changes checked for an open transaction before a catalog read
+    private static final int CHECKED_CHANGES = 100;
+
+    private final ProductChangeRepository productChangeRepository;
+    private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Duration retention;
+    private final Duration commitTimeout;
+    private final Duration maxWait;
+    private final ITopic<Long> changes;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ProductChangeFeed(ProductChangeRepository productChangeRepository,
+                             ProductRepository productRepository,
+                             EntityManager entityManager,
+                             TransactionTemplate transactionTemplate,
+                             HazelcastInstance hazelcastInstance,
+                             Duration retention,
+                             Duration commitTimeout,
+                             Duration maxWait) {
+        this.productChangeRepository = productChangeRepository;
+        this.productRepository = productRepository;
+        this.entityManager = entityManager;
+        this.transaction = transactionTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager(),
+                transactionTemplate);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.retention = retention;
+        this.commitTimeout = commitTimeout;
+        this.maxWait = maxWait;
+        this.changes = hazelcastInstance.getTopic(CHANGES_TOPIC);
+        this.changes.addMessageListener(this);
+    }
+
+    /**
+     * Writes a change per product in the current transaction, as one JDBC batch. The pending
+     * product writes are flushed first, so the numbers are taken once the rows are locked and
+     * stay uncommitted, a gap to the feed, only for the rest of the transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(ProductChange.Type type, Collection<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        entityManager.flush();
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> sequences = productChangeRepository.nextSequences(productIds.size()).stream().sorted().toList();
+        Iterator<Long> sequence = sequences.iterator();
+        for (int productId : productIds) {
+            // persisted rather than saved, the assigned id would make save select it first
+            entityManager.persist(new ProductChange(sequence.next(), productId, type, now, null));
+        }
+        long last = sequences.get(sequences.size() - 1);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                changes.publish(last);
+            }
+        });
+    }
+
+    /**
+     * At most limit changes after the since sequence, each with the current state of its product,
+     * up to the first number still held by an open transaction.
+     * Read from the primary, a replica may not have the changes a consumer was woken for.
+     */
+    public ProductChanges find(long since, int limit) {
+        return readOnlyTransaction.execute(status -> DataSourceRouting.onPrimary(() -> {
+            if (since < productChangeRepository.findPurgedSequence()) {
+                throw new IllegalArgumentException("changes after sequence " + since
+                        + " are no longer kept, sync from GET /products");
+            }
+            List<ProductChange> found = productChangeRepository
+                    .findBySequenceGreaterThanOrderBySequenceAsc(since, PageRequest.ofSize(limit));
+            LocalDateTime settled = LocalDateTime.now().minus(commitTimeout);
+            long last = since;
+            int committed = 0;
+            while (committed < found.size() && !isOpenGap(found.get(committed), last, settled)) {
+                last = found.get(committed++).getSequence();
+            }
+            found = found.subList(0, committed);
+            addProducts(found);
+            return new ProductChanges(found, last);
+        }));
+    }
+
+    /**
+     * Like {@link #find}, but waits up to wait for a change after since when there is none yet.
+     */
+    public CompletableFuture<ProductChanges> await(long since, int limit, Duration wait) {
+        if (wait.isNegative() || wait.compareTo(maxWait) > 0) {
+            throw new IllegalArgumentException("wait must be between 0 and " + maxWait.toSeconds() + " seconds");
+        }
+        ProductChanges found = find(since, limit);
+        if (!found.getChanges().isEmpty() || wait.isZero()) {
+            return CompletableFuture.completedFuture(found);
+        }
+        Waiter waiter = new Waiter(since, new CompletableFuture<>());
+        waiters.add(waiter);
+        // a change published between the find and the registration
+        if (findLastSequence() > since) {
+            waiter.changed().complete(null);
+        }
+        return waiter.changed()
+                .completeOnTimeout(null, wait.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((ignored, exception) -> waiters.remove(waiter))
+                .thenApplyAsync(ignored -> find(since, limit), executor);
+    }
+
+    /**
+     * Sequence of the last change no open transaction holds a lower number than, read from the
+     * primary. A consumer starting from it misses no change.
+     */
+    public long findLastSequence() {
+        return readOnlyTransaction.execute(status ->
+                DataSourceRouting.onPrimary(() -> findSequences(Integer.MAX_VALUE).committed()));
+    }
+
+    /**
+     * Sequence of the last change, read in the current transaction from the database it reads from.
+     * Null while a lower number may still commit, a view read then can change without it.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Long readLastSequence() {
+        Sequences sequences = findSequences(1);
+        return sequences != null && sequences.committed() == sequences.last() ? sequences.last() : null;
+    }
+
+    @Override
+    public void onMessage(Message<Long> message) {
+        long sequence = message.getMessageObject();
+        for (Waiter waiter : waiters) {
+            if (sequence > waiter.since()) {
+                waiter.changed().complete(null);
+            }
+        }
+    }
+
+    /**
+     * Deletes the changes below the first one recorded within the retention, keeping the
+     * last committed one, so the catalog version survives a quiet period.
+     */
+    @Scheduled(fixedDelayString = "${online-shop.changes.purge-interval:PT1H}",
+            initialDelayString = "${online-shop.changes.purge-interval:PT1H}")
+    public void purge() {
+        long committed = findLastSequence();
+        transaction.executeWithoutResult(status -> {
+            Long retained = productChangeRepository.findFirstSequenceChangedSince(LocalDateTime.now().minus(retention));
+            long purgedSequence = (retained == null ? committed : Math.min(retained, committed)) - 1;
+            productChangeRepository.updatePurgedSequence(purgedSequence);
+            int purged = productChangeRepository.deleteBySequenceUpTo(purgedSequence);
+            if (purged > 0) {
+                log.info("purged {} product changes up to sequence {}", purged, purgedSequence);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        executor.close();
+    }
+
+    private void addProducts(List<ProductChange> found) {
+        Set<Integer> ids = found.stream()
+                .filter(change -> change.getType() != ProductChange.Type.DELETED)
+                .map(ProductChange::getProductId)
+                .collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<Integer, Product> products = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        found.forEach(change -> change.setProduct(products.get(change.getProductId())));
+    }
+
+    // walks down from the last change to one older than the commit timeout, null when more
+    // than pages of changes are newer
+    private Sequences findSequences(int pages) {
+        LocalDateTime settled = LocalDateTime.now().minus(commitTimeout);
+        long committed = 0;
+        ProductChange last = null;
+        ProductChange above = null;
+        for (int page = 0; page < pages; page++) {
+            List<ProductChange> changes = productChangeRepository.findBySequenceLessThanOrderBySequenceDesc(
+                    above == null ? Long.MAX_VALUE : above.getSequence(), PageRequest.ofSize(CHECKED_CHANGES));
+            for (ProductChange change : changes) {
+                if (above == null || isOpenGap(above, change.getSequence(), settled)) {
+                    committed = change.getSequence();
+                }
+                if (last == null) {
+                    last = change;
+                }
+                if (change.getChangedAt().isBefore(settled)) {
+                    return new Sequences(last.getSequence(), committed);
+                }
+                above = change;
+            }
+            if (changes.size() < CHECKED_CHANGES) {
+                long purged = productChangeRepository.findPurgedSequence();
+                return above == null ? new Sequences(purged, purged)
+                        : new Sequences(last.getSequence(), isOpenGap(above, purged, settled) ? purged : committed);
+            }
+        }
+        return null;
+    }
+
+    // a number missing below the change is held by an open transaction, unless the change was
+    // recorded longer than the commit timeout ago and the number is given up
+    private static boolean isOpenGap(ProductChange change, long below, LocalDateTime settled) {
+        return change.getSequence() > below + 1 && !change.getChangedAt().isBefore(settled);
+    }
+
+    private record Sequences(long last, long committed) {
+    }
+
+    private record Waiter(long since, CompletableFuture<Void> changed) {
+    }
+}
@@ -0,0 +1,38 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token of the keyset pagination. Encodes the id of the
+ * last product of a page, the next page starts right after it.
+ */
+final class ProductPageToken {
+
+    private static final String PREFIX = "id:";
+
+    private ProductPageToken() {
+    }
+
+    static String encode(int lastId) {
+        byte[] bytes = (PREFIX + lastId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    static int decode(String token) {
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("invalid page token: " + token, exception);
+        }
+        if (!value.startsWith(PREFIX)) {
+            throw new IllegalArgumentException("invalid page token: " + token);
+        }
+        try {
+            return Integer.parseInt(value.substring(PREFIX.length()));
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("invalid page token: " + token, exception);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ProductReactiveService {
+    Flux<Product> findAll();
+
+    Mono<Product> findById(int id);
+
+    Flux<Product> search(String text);
+}
@@ -0,0 +1,71 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.exception.ProductNotFoundException;
+import com.parashchak.online.shop.spring.boot.repository.ProductReactiveRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static com.parashchak.online.shop.spring.boot.config.CacheConfig.PRODUCTS_CACHE;
+
+/**
+ * Reads over R2DBC, with pending write-behind updates applied but without the snapshot.
+ * Never puts into the products cache: a write committing before the put would leave the
+ * old product cached, loading is left to {@link ProductServiceImpl#findById}.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductReactiveServiceImpl implements ProductReactiveService {
+
+    private final ProductReactiveRepository productReactiveRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final CacheManager cacheManager;
+    private final ObjectProvider<ProductWriteBehind> productWriteBehind;
+
+    @Override
+    public Flux<Product> findAll() {
+        return productReactiveRepository.findAllByOrderByIdAsc().map(this::withPendingWrites);
+    }
+
+    @Override
+    public Mono<Product> findById(int id) {
+        Cache cache = cacheManager.getCache(PRODUCTS_CACHE);
+        Product cached = cache.get(id, Product.class);
+        if (cached != null) {
+            return Mono.just(withPendingWrites(cached));
+        }
+        return productReactiveRepository.findById(id)
+                .map(this::withPendingWrites)
+                .switchIfEmpty(Mono.error(() -> new ProductNotFoundException("product with id=" + id + " not found")));
+    }
+
+    @Override
+    public Flux<Product> search(String text) {
+        List<Integer> ids = productSearchIndex.search(text);
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return productReactiveRepository.findAllById(ids)
+                .collectMap(Product::getId, Function.identity())
+                .flatMapIterable(productsById -> ids.stream()
+                        .map(productsById::get)
+                        .filter(Objects::nonNull)
+                        .map(this::withPendingWrites)
+                        .toList());
+    }
+
+    private Product withPendingWrites(Product product) {
+        ProductWriteBehind writeBehind = productWriteBehind.getIfAvailable();
+        return writeBehind == null ? product : writeBehind.withPendingWrites(product);
+    }
+}
@@ -0,0 +1,183 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product name and description.
+ * <p>
+ * Case-folded texts are split into trigrams, so any substring of at least three
+ * characters is found through the postings, the candidates are then checked with
+ * a plain substring match. Shorter texts are matched against the stored texts.
+ * Results are ordered by relevance: name matches before description matches,
+ * whole word matches before partial ones, then by id.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private final int limit;
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final Map<String, Set<Integer>> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ProductSearchIndex(@Value("${online-shop.search.limit:100}") int limit) {
+        this.limit = limit;
+    }
+
+    public void put(Product product) {
+        Document document = new Document(fold(product.getName()), fold(product.getDescription()));
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            documents.put(product.getId(), document);
+            for (String gram : document.grams()) {
+                postings.computeIfAbsent(gram, key -> new HashSet<>()).add(product.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            postings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Integer> search(String text) {
+        String query = fold(text);
+        if (query.isEmpty()) {
+            return List.of();
+        }
+
+        List<Match> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int id : candidates(query)) {
+                int score = documents.get(id).score(query);
+                if (score > 0) {
+                    matches.add(new Match(id, score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(Comparator.comparingInt(Match::score).reversed().thenComparingInt(Match::id));
+        return matches.stream()
+                .limit(limit)
+                .map(Match::id)
+                .toList();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Collection<Integer> candidates(String query) {
+        if (query.length() < GRAM_LENGTH) {
+            return documents.keySet();
+        }
+
+        List<Set<Integer>> lists = new ArrayList<>();
+        for (String gram : grams(query)) {
+            Set<Integer> ids = postings.get(gram);
+            if (ids == null) {
+                return List.of();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        Set<Integer> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    private void removeDocument(int id) {
+        Document document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        for (String gram : document.grams()) {
+            Set<Integer> ids = postings.get(gram);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private static String fold(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private record Document(String name, String description) {
+
+        Set<String> grams() {
+            Set<String> grams = ProductSearchIndex.grams(name);
+            grams.addAll(ProductSearchIndex.grams(description));
+            return grams;
+        }
+
+        int score(String query) {
+            return score(name, query, 4) + score(description, query, 2);
+        }
+
+        private static int score(String text, String query, int weight) {
+            int index = text.indexOf(query);
+            if (index < 0) {
+                return 0;
+            }
+            while (index >= 0) {
+                if (isWordBoundary(text, index - 1) && isWordBoundary(text, index + query.length())) {
+                    return weight;
+                }
+                index = text.indexOf(query, index + 1);
+            }
+            return weight - 1;
+        }
+
+        private static boolean isWordBoundary(String text, int index) {
+            return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+        }
+    }
+
+    private record Match(int id, int score) {
+    }
+}
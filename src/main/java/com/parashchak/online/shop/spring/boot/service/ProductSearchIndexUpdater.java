@@ -0,0 +1,144 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.parashchak.online.shop.spring.boot.config.DataSourceRouting;
+import com.parashchak.online.shop.spring.boot.entity.ProductChange;
+import com.parashchak.online.shop.spring.boot.entity.ProductChanges;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static com.parashchak.online.shop.spring.boot.service.ProductServiceImpl.MAX_PAGE_LIMIT;
+
+/**
+ * Keeps the {@link ProductSearchIndex} of this node up to date with the writes of every node.
+ * The index is built when the application is ready, then a background thread follows the
+ * change feed, woken by the sequence each commit publishes, and applies the changes to the
+ * index. When the changes it needs were purged, the index is built anew.
+ * <p>
+ * Writes on this node also update the index right after their commit, the feed brings
+ * their products again a moment later.
+ */
+@Slf4j
+@Component
+public class ProductSearchIndexUpdater implements DisposableBean {
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+    private final ProductServiceImpl productService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductChangeFeed productChangeFeed;
+    private final Duration wait;
+    private volatile long sequence;
+    private volatile CompletableFuture<ProductChanges> awaitedChanges;
+    private Thread updater;
+
+    public ProductSearchIndexUpdater(ProductServiceImpl productService,
+                                     ProductSearchIndex productSearchIndex,
+                                     ProductChangeFeed productChangeFeed,
+                                     @Value("${online-shop.changes.max-wait:30s}") Duration wait) {
+        this.productService = productService;
+        this.productSearchIndex = productSearchIndex;
+        this.productChangeFeed = productChangeFeed;
+        this.wait = wait;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuild();
+        updater = Thread.ofVirtual().name("product-search-index").start(this::updateContinuously);
+    }
+
+    /**
+     * Builds the index from all products. The last sequence is read first, changes
+     * committed while the products are read are applied again by the next update.
+     */
+    public synchronized void rebuild() {
+        long last = productChangeFeed.findLastSequence();
+        // a replica may not have the changes up to the sequence yet
+        DataSourceRouting.onPrimary(() -> {
+            productService.buildSearchIndex();
+            return null;
+        });
+        sequence = last;
+        // the updater may wait for changes after the sequence of the replaced index
+        CompletableFuture<ProductChanges> awaited = awaitedChanges;
+        if (awaited != null) {
+            awaited.cancel(false);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (updater != null) {
+            updater.interrupt();
+        }
+    }
+
+    private void updateContinuously() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                update();
+            } catch (InterruptedException exception) {
+                return;
+            } catch (RuntimeException exception) {
+                log.warn("updating the search index failed, retrying in {}", RETRY_DELAY, exception);
+                try {
+                    Thread.sleep(RETRY_DELAY);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the changes after the sequence of the index and applies them.
+     */
+    private void update() throws InterruptedException {
+        long since = sequence;
+        ProductChanges changes;
+        try {
+            awaitedChanges = productChangeFeed.await(since, MAX_PAGE_LIMIT, wait);
+            changes = awaitedChanges.get();
+        } catch (CancellationException exception) {
+            // the index was rebuilt
+            return;
+        } catch (IllegalArgumentException exception) {
+            rebuildPurged(since);
+            return;
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof IllegalArgumentException) {
+                rebuildPurged(since);
+                return;
+            }
+            throw new IllegalStateException("could not read changes after " + since, exception.getCause());
+        }
+        synchronized (this) {
+            if (sequence != since) {
+                return;
+            }
+            for (ProductChange change : changes.getChanges()) {
+                if (change.getType() == ProductChange.Type.DELETED) {
+                    productSearchIndex.remove(change.getProductId());
+                } else if (change.getProduct() != null) {
+                    // without a product, it was deleted since and its deletion is a later change
+                    productSearchIndex.put(change.getProduct());
+                }
+            }
+            sequence = changes.getLast();
+        }
+    }
+
+    private void rebuildPurged(long since) {
+        log.warn("changes after {} were purged, rebuilding the search index", since);
+        rebuild();
+    }
+}
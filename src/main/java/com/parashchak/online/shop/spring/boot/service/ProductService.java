@@ -1,19 +1,58 @@
 package com.parashchak.online.shop.spring.boot.service;
 
+import com.parashchak.online.shop.spring.boot.entity.BatchResult;
 import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductChanges;
+import com.parashchak.online.shop.spring.boot.entity.ProductFilter;
+import com.parashchak.online.shop.spring.boot.entity.ProductPage;
+import com.parashchak.online.shop.spring.boot.entity.WriteReceipt;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface ProductService {
     List<Product> findAll();
 
+    ProductPage findPage(String after, int limit);
+
+    List<Product> findFiltered(ProductFilter filter);
+
+    List<Map<String, Object>> findFields(ProductFilter filter, List<String> fields);
+
+    void export(Consumer<Product> consumer);
+
+    Long findCatalogVersion();
+
     void add(Product product);
 
     Product findById(int id);
 
     List<Product> search(String text);
 
+    List<Map<String, Object>> searchFields(String text, List<String> fields);
+
     void deleteById(int id);
 
     void update(int id, Product product);
+
+    List<BatchResult> addAll(List<Product> products);
+
+    List<BatchResult> updateAll(List<Product> products);
+
+    List<BatchResult> deleteAllById(List<Integer> ids);
+
+    boolean isWriteBehind();
+
+    WriteReceipt submitAdd(Product product);
+
+    WriteReceipt submitUpdate(int id, Product product);
+
+    WriteReceipt findWrite(String trackingId);
+
+    ProductChanges findChanges(long since, int limit);
+
+    CompletableFuture<ProductChanges> awaitChanges(long since, int limit, Duration wait);
 }
\ No newline at end of file
@@ -1,53 +1,565 @@
 package com.parashchak.online.shop.spring.boot.service;
 
+import com.parashchak.online.shop.spring.boot.config.DataSourceRouting;
+import com.parashchak.online.shop.spring.boot.entity.BatchResult;
 import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductChange;
+import com.parashchak.online.shop.spring.boot.entity.ProductChanges;
+import com.parashchak.online.shop.spring.boot.entity.ProductFilter;
+import com.parashchak.online.shop.spring.boot.entity.ProductPage;
+import com.parashchak.online.shop.spring.boot.entity.WriteReceipt;
+import com.parashchak.online.shop.spring.boot.exception.ProductConflictException;
+import com.parashchak.online.shop.spring.boot.exception.ProductNotFoundException;
 import com.parashchak.online.shop.spring.boot.repository.ProductRepository;
+import com.parashchak.online.shop.spring.boot.repository.ProductSpecifications;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.List;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.parashchak.online.shop.spring.boot.config.CacheConfig.PRODUCTS_CACHE;
 
 @Service
 @RequiredArgsConstructor
+@Timed("product.service")
 public class ProductServiceImpl implements ProductService {
 
+    static final int MAX_PAGE_LIMIT = 1000;
+
+    /**
+     * Items written per transaction by the batch operations, equal to
+     * hibernate.jdbc.batch_size and to the id allocation size of {@link Product}.
+     */
+    static final int BATCH_SIZE = 50;
+
+    private static final List<String> FIELDS =
+            List.of("id", "name", "price", "creationDate", "description", "version", "lastModified");
+
+    // each one has an index led by its column
+    private static final Set<String> SORT_PROPERTIES = Set.of("price", "name", "creationDate");
+
     private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final ProductSearchIndex productSearchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductChangeFeed productChangeFeed;
+    // only present when online-shop.write-behind.enabled is set
+    private final ObjectProvider<ProductWriteBehind> productWriteBehind;
 
     @Override
+    @Transactional(readOnly = true)
     public List<Product> findAll() {
-        return productRepository.findAll();
+        recordCatalogVersion();
+        return withPendingWrites(productRepository.findAll());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProductPage findPage(String after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_LIMIT);
+        }
+        int afterId = after == null ? 0 : ProductPageToken.decode(after);
+        recordCatalogVersion();
+
+        // one extra row tells whether there is a next page without a count query
+        List<Product> products = productRepository
+                .findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(limit + 1));
+        if (products.size() <= limit) {
+            return new ProductPage(withPendingWrites(products), null);
+        }
+        List<Product> page = products.subList(0, limit);
+        return new ProductPage(withPendingWrites(page), ProductPageToken.encode(page.get(limit - 1).getId()));
+    }
+
+    /**
+     * At most limit products, or {@link #MAX_PAGE_LIMIT} when no limit is given,
+     * ordered by the sort property and then by id.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Product> findFiltered(ProductFilter filter) {
+        int limit = checkFilter(filter);
+        Sort sort = toSort(filter.getSort());
+        recordCatalogVersion();
+        List<Product> products = productRepository.findBy(ProductSpecifications.matching(filter),
+                query -> query.sortBy(sort).limit(limit).all());
+        return withPendingWrites(products);
+    }
+
+    /**
+     * Like {@link #findAll()}, or {@link #findFiltered} for a non-empty filter, but only the
+     * given fields are selected. id is always included, the products are ordered by id
+     * unless the filter sorts them.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findFields(ProductFilter filter, List<String> fields) {
+        List<String> selectedFields = selectFields(fields);
+        recordCatalogVersion();
+        if (filter.isEmpty()) {
+            return withPendingFields(productRepository.findFields(selectedFields, Specification.allOf(),
+                    Sort.by("id"), 0));
+        }
+        int limit = checkFilter(filter);
+        return withPendingFields(productRepository.findFields(selectedFields, ProductSpecifications.matching(filter),
+                toSort(filter.getSort()), limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void export(Consumer<Product> consumer) {
+        streamAll(consumer);
+    }
+
+    /**
+     * Called by {@link ProductSearchIndexUpdater}, which keeps the index up to date afterwards.
+     */
+    @Transactional(readOnly = true)
+    public void buildSearchIndex() {
+        productSearchIndex.clear();
+        streamAll(productSearchIndex::put);
+    }
+
+    private void streamAll(Consumer<Product> consumer) {
+        try (Stream<Product> products = productRepository.streamAllByOrderByIdAsc()) {
+            products.forEach(product -> {
+                consumer.accept(product);
+                // keeps the persistence context empty, so memory does not grow with the catalog
+                entityManager.detach(product);
+            });
+        }
+    }
+
+    /**
+     * The sequence of the last change, every write records one. Null while updates are
+     * pending in write-behind mode, reads show them before they are changes, and while a
+     * change before the last one is not committed yet.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Long findCatalogVersion() {
+        ProductWriteBehind writeBehind = productWriteBehind.getIfAvailable();
+        if (writeBehind != null && writeBehind.hasPendingUpdates()) {
+            return null;
+        }
+        return productChangeFeed.readLastSequence();
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = PRODUCTS_CACHE, key = "#product.id")
     public void add(Product product) {
         productRepository.save(product);
+        productChangeFeed.record(ProductChange.Type.CREATED, List.of(product.getId()));
+        afterCommit(() -> productSearchIndex.put(product));
     }
 
+    /**
+     * sync=true makes an eviction wait for a concurrent load of the id. Loaded from the
+     * primary, an entry from a lagging replica would stay stale until it expires.
+     */
     @Override
+    @SingleFlight
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = PRODUCTS_CACHE, key = "#id", sync = true)
     public Product findById(int id) {
-        return productRepository.findById(id).orElseThrow(() -> new IllegalStateException(
-                "product with id=" + id + " not found"));
+        return withPendingWrites(findProduct(id));
     }
 
     @Override
+    @SingleFlight
+    @Transactional(readOnly = true)
     public List<Product> search(String text) {
-        return productRepository
-                .findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
-                        text, text);
+        recordCatalogVersion();
+        List<Integer> ids = productSearchIndex.search(text);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Product> products = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return withPendingWrites(ids.stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .toList());
     }
 
     @Override
+    @SingleFlight
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> searchFields(String text, List<String> fields) {
+        List<String> selectedFields = selectFields(fields);
+        recordCatalogVersion();
+        List<Integer> ids = productSearchIndex.search(text);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Object, Map<String, Object>> products = productRepository
+                .findFields(selectedFields, ProductSpecifications.idIn(ids), Sort.unsorted(), 0).stream()
+                .collect(Collectors.toMap(product -> product.get("id"), Function.identity()));
+        return withPendingFields(ids.stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .toList());
+    }
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = PRODUCTS_CACHE, key = "#id")
     public void deleteById(int id) {
-        findById(id);
-        productRepository.deleteById(id);
+        if (productRepository.deleteProductById(id) == 0) {
+            throw new ProductNotFoundException("product with id=" + id + " not found");
+        }
+        productChangeFeed.record(ProductChange.Type.DELETED, List.of(id));
+        afterCommit(() -> productSearchIndex.remove(id));
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = PRODUCTS_CACHE, key = "#id")
     public void update(int id, Product product) {
-        Product foundProduct = findById(id);
-        foundProduct.setName(product.getName());
-        foundProduct.setPrice(product.getPrice());
-        foundProduct.setDescription(product.getDescription());
-        productRepository.save(foundProduct);
+        // managed entity, dirty checking writes only the changed columns when the change is recorded, or nothing
+        Product foundProduct = findProduct(id);
+        checkVersion(id, product, foundProduct);
+        if (hasChanges(product, foundProduct)) {
+            copyChanges(product, foundProduct);
+            productChangeFeed.record(ProductChange.Type.UPDATED, List.of(id));
+        }
+        afterCommit(() -> productSearchIndex.put(foundProduct));
+    }
+
+    @Override
+    public List<BatchResult> addAll(List<Product> products) {
+        List<BatchResult> results = new ArrayList<>(products.size());
+        for (int from = 0; from < products.size(); from += BATCH_SIZE) {
+            List<Product> chunk = products.subList(from, Math.min(from + BATCH_SIZE, products.size()));
+            // a failed add has no id
+            writeChunk(results, from, chunk, product -> null, this::addChunk);
+        }
+        return results;
+    }
+
+    @Override
+    @CacheEvict(cacheNames = PRODUCTS_CACHE, allEntries = true)
+    public List<BatchResult> updateAll(List<Product> products) {
+        List<BatchResult> results = new ArrayList<>(products.size());
+        for (int from = 0; from < products.size(); from += BATCH_SIZE) {
+            List<Product> chunk = products.subList(from, Math.min(from + BATCH_SIZE, products.size()));
+            writeChunk(results, from, chunk, Product::getId, this::updateChunk);
+        }
+        return results;
+    }
+
+    @Override
+    @CacheEvict(cacheNames = PRODUCTS_CACHE, allEntries = true)
+    public List<BatchResult> deleteAllById(List<Integer> ids) {
+        List<BatchResult> results = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            writeChunk(results, from, chunk, Function.identity(), this::deleteChunk);
+        }
+        return results;
+    }
+
+    @Override
+    public boolean isWriteBehind() {
+        return productWriteBehind.getIfAvailable() != null;
+    }
+
+    /**
+     * Journals the add, it is inserted by a later flush and gets its id then.
+     */
+    @Override
+    public WriteReceipt submitAdd(Product product) {
+        return writeBehind().submitAdd(product);
+    }
+
+    /**
+     * Journals the update of an existing product, its If-Match version is checked against
+     * the database now, not when the update is flushed. With an update of the product
+     * pending, an If-Match update is rejected.
+     */
+    @Override
+    @CacheEvict(cacheNames = PRODUCTS_CACHE, key = "#id")
+    public WriteReceipt submitUpdate(int id, Product product) {
+        ProductWriteBehind writeBehind = writeBehind();
+        checkVersion(id, product, findProduct(id));
+        return writeBehind.submitUpdate(id, product);
+    }
+
+    @Override
+    public WriteReceipt findWrite(String trackingId) {
+        long sequence;
+        try {
+            sequence = Long.parseLong(trackingId);
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("trackingId must be a number");
+        }
+        return writeBehind().findWrite(sequence);
+    }
+
+    @Override
+    public ProductChanges findChanges(long since, int limit) {
+        checkChangesRequest(since, limit);
+        return productChangeFeed.find(since, limit);
+    }
+
+    @Override
+    public CompletableFuture<ProductChanges> awaitChanges(long since, int limit, Duration wait) {
+        checkChangesRequest(since, limit);
+        return productChangeFeed.await(since, limit, wait);
+    }
+
+    private Product findProduct(int id) {
+        return DataSourceRouting.onPrimary(() -> productRepository.findById(id)).orElseThrow(() ->
+                new ProductNotFoundException("product with id=" + id + " not found"));
+    }
+
+    private ProductWriteBehind writeBehind() {
+        ProductWriteBehind writeBehind = productWriteBehind.getIfAvailable();
+        if (writeBehind == null) {
+            throw new ProductConflictException("write-behind is disabled");
+        }
+        return writeBehind;
+    }
+
+    private Product withPendingWrites(Product product) {
+        ProductWriteBehind writeBehind = productWriteBehind.getIfAvailable();
+        return writeBehind == null ? product : writeBehind.withPendingWrites(product);
+    }
+
+    private List<Product> withPendingWrites(List<Product> products) {
+        ProductWriteBehind writeBehind = productWriteBehind.getIfAvailable();
+        return writeBehind == null ? products : writeBehind.withPendingWrites(products);
+    }
+
+    private void recordCatalogVersion() {
+        if (CatalogVersion.isTracked()) {
+            // in the transaction of the view and before it, the view is at least as new
+            Long version = productChangeFeed.readLastSequence();
+            if (version == null) {
+                CatalogVersion.recordUnknown();
+            } else {
+                CatalogVersion.record(version);
+            }
+        }
+    }
+
+    private List<Map<String, Object>> withPendingFields(List<Map<String, Object>> products) {
+        ProductWriteBehind writeBehind = productWriteBehind.getIfAvailable();
+        return writeBehind == null ? products : writeBehind.withPendingFields(products);
+    }
+
+    // the other nodes update their index from the change feed
+    private static void afterCommit(Runnable indexUpdate) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                indexUpdate.run();
+            }
+        });
+    }
+
+    private static void checkVersion(int id, Product product, Product foundProduct) {
+        if (product.getVersion() != null && !product.getVersion().equals(foundProduct.getVersion())) {
+            throw new OptimisticLockingFailureException("product with id=" + id + " has version="
+                    + foundProduct.getVersion() + ", expected version=" + product.getVersion());
+        }
+    }
+
+    /**
+     * A failed chunk is written again item by item, so only the items failing on their own
+     * are reported failed; without a connection it is not retried.
+     */
+    private <T> void writeChunk(List<BatchResult> results, int from, List<T> chunk, Function<T, Integer> id,
+                                BiFunction<Integer, List<T>, List<BatchResult>> writer) {
+        try {
+            results.addAll(writer.apply(from, chunk));
+        } catch (CannotCreateTransactionException exception) {
+            addFailures(results, from, chunk.stream().map(id).toList(), exception);
+        } catch (RuntimeException exception) {
+            for (int i = 0; i < chunk.size(); i++) {
+                T item = chunk.get(i);
+                try {
+                    results.addAll(writer.apply(from + i, Collections.singletonList(item)));
+                } catch (RuntimeException itemException) {
+                    addFailures(results, from + i, Collections.singletonList(id.apply(item)), itemException);
+                }
+            }
+        }
+    }
+
+    private List<BatchResult> addChunk(int from, List<Product> chunk) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                productRepository.saveAll(chunk);
+                productChangeFeed.record(ProductChange.Type.CREATED, chunk.stream().map(Product::getId).toList());
+            });
+        } catch (RuntimeException exception) {
+            // a rolled back insert leaves the id and version it assigned, the products are added again as new
+            chunk.forEach(ProductServiceImpl::clearGenerated);
+            throw exception;
+        }
+        List<BatchResult> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Product product = chunk.get(i);
+            productSearchIndex.put(product);
+            results.add(new BatchResult(from + i, product.getId(), HttpStatus.OK, null));
+        }
+        return results;
+    }
+
+    private List<BatchResult> updateChunk(int from, List<Product> chunk) {
+        List<Integer> ids = chunk.stream().map(Product::getId).toList();
+        Map<Integer, Product> updatedProducts = transactionTemplate.execute(status -> updateFound(chunk, ids));
+        List<BatchResult> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            int id = ids.get(i);
+            Product updatedProduct = updatedProducts.get(id);
+            if (updatedProduct == null) {
+                results.add(notFound(from + i, id));
+            } else {
+                productSearchIndex.put(updatedProduct);
+                results.add(new BatchResult(from + i, id, HttpStatus.OK, null));
+            }
+        }
+        return results;
+    }
+
+    private List<BatchResult> deleteChunk(int from, List<Integer> chunk) {
+        Set<Integer> existingIds = transactionTemplate.execute(status -> {
+            Set<Integer> found = new HashSet<>(productRepository.findExistingIds(chunk));
+            productRepository.deleteAllByIdInBatch(found);
+            productChangeFeed.record(ProductChange.Type.DELETED, found);
+            return found;
+        });
+        List<BatchResult> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            int id = chunk.get(i);
+            if (existingIds.contains(id)) {
+                productSearchIndex.remove(id);
+                results.add(new BatchResult(from + i, id, HttpStatus.OK, null));
+            } else {
+                results.add(notFound(from + i, id));
+            }
+        }
+        return results;
+    }
+
+    private Map<Integer, Product> updateFound(List<Product> chunk, List<Integer> ids) {
+        Map<Integer, Product> foundProducts = new HashMap<>();
+        productRepository.findAllById(ids).forEach(found -> foundProducts.put(found.getId(), found));
+        Set<Integer> changedIds = new LinkedHashSet<>();
+        for (Product product : chunk) {
+            Product foundProduct = foundProducts.get(product.getId());
+            if (foundProduct != null && hasChanges(product, foundProduct)) {
+                // managed entities, flushed as one JDBC batch when the changes are recorded
+                copyChanges(product, foundProduct);
+                changedIds.add(foundProduct.getId());
+            }
+        }
+        productChangeFeed.record(ProductChange.Type.UPDATED, changedIds);
+        return foundProducts;
+    }
+
+    private static boolean hasChanges(Product from, Product to) {
+        return !Objects.equals(from.getName(), to.getName())
+                || from.getPrice() != to.getPrice()
+                || !Objects.equals(from.getDescription(), to.getDescription());
+    }
+
+    private static void clearGenerated(Product product) {
+        product.setId(0);
+        product.setVersion(null);
+        product.setLastModified(null);
+    }
+
+    private static void copyChanges(Product from, Product to) {
+        to.setName(from.getName());
+        to.setPrice(from.getPrice());
+        to.setDescription(from.getDescription());
+    }
+
+    private static void checkChangesRequest(long since, int limit) {
+        if (since < 0) {
+            throw new IllegalArgumentException("since must not be negative");
+        }
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_LIMIT);
+        }
+    }
+
+    private static int checkFilter(ProductFilter filter) {
+        int limit = filter.getLimit() == null ? MAX_PAGE_LIMIT : filter.getLimit();
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_LIMIT);
+        }
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null
+                && filter.getMinPrice() > filter.getMaxPrice()) {
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+        }
+        if (filter.getCreatedFrom() != null && filter.getCreatedTo() != null
+                && !filter.getCreatedFrom().isBefore(filter.getCreatedTo())) {
+            throw new IllegalArgumentException("createdFrom must be before createdTo");
+        }
+        return limit;
+    }
+
+    private static List<String> selectFields(List<String> fields) {
+        Set<String> selectedFields = new LinkedHashSet<>();
+        selectedFields.add("id");
+        for (String field : fields) {
+            if (!FIELDS.contains(field)) {
+                throw new IllegalArgumentException("fields must be a subset of " + FIELDS);
+            }
+            selectedFields.add(field);
+        }
+        return List.copyOf(selectedFields);
+    }
+
+    private static Sort toSort(String sort) {
+        if (sort == null) {
+            return Sort.by("id");
+        }
+        boolean descending = sort.startsWith("-");
+        String property = descending ? sort.substring(1) : sort;
+        if (!SORT_PROPERTIES.contains(property)) {
+            throw new IllegalArgumentException("sort must be one of " + SORT_PROPERTIES
+                    + ", optionally prefixed with '-' for descending order");
+        }
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return Sort.by(direction, property, "id");
+    }
+
+    private static BatchResult notFound(int index, int id) {
+        return new BatchResult(index, id, HttpStatus.NOT_FOUND, "product with id=" + id + " not found");
+    }
+
+    private static void addFailures(List<BatchResult> results, int from, List<Integer> ids, RuntimeException exception) {
+        for (int i = 0; i < ids.size(); i++) {
+            results.add(new BatchResult(from + i, ids.get(i), HttpStatus.INTERNAL_SERVER_ERROR, exception.getMessage()));
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,419 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductChange;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Immutable copy of the catalog in columns of primitive arrays, one row per product
+ * in ascending id order. A product is found by binary search over the int ids, prices
+ * through a second array of rows ordered by price. Names and descriptions are kept as
+ * UTF-8 in one byte array, dates as epoch microseconds, the precision of the timestamp
+ * columns. The garbage collector sees a dozen arrays instead of several objects per product.
+ * <p>
+ * Products are materialized on every read, so callers may change them. Applying changes
+ * copies the columns into a new snapshot, in time linear to its size.
+ */
+public final class ProductSnapshot {
+
+    private static final long NULL = Long.MIN_VALUE;
+
+    private final long sequence;
+    private final int size;
+    private final int[] ids;
+    private final double[] prices;
+    private final long[] creationDates;
+    private final long[] versions;
+    private final long[] lastModified;
+    // name of row i at [textOffsets[2i], textOffsets[2i + 1]), its description up to textOffsets[2i + 2]
+    private final byte[] text;
+    private final int[] textOffsets;
+    // bit 2i for a null name, 2i + 1 for a null description
+    private final BitSet nullTexts;
+    // rows ordered by price, then by id
+    private final int[] byPrice;
+
+    // takes over the arrays of the builder that have the exact size
+    private ProductSnapshot(long sequence, Builder builder, int[] byPrice) {
+        this.sequence = sequence;
+        this.size = builder.size;
+        this.ids = builder.ids.length == size ? builder.ids : Arrays.copyOf(builder.ids, size);
+        this.prices = builder.prices.length == size ? builder.prices : Arrays.copyOf(builder.prices, size);
+        this.creationDates = builder.creationDates.length == size
+                ? builder.creationDates : Arrays.copyOf(builder.creationDates, size);
+        this.versions = builder.versions.length == size ? builder.versions : Arrays.copyOf(builder.versions, size);
+        this.lastModified = builder.lastModified.length == size
+                ? builder.lastModified : Arrays.copyOf(builder.lastModified, size);
+        this.text = builder.text.length == builder.textLength
+                ? builder.text : Arrays.copyOf(builder.text, builder.textLength);
+        this.textOffsets = builder.textOffsets.length == 2 * size + 1
+                ? builder.textOffsets : Arrays.copyOf(builder.textOffsets, 2 * size + 1);
+        this.nullTexts = builder.nullTexts;
+        this.byPrice = byPrice != null ? byPrice : sortByPrice(this.prices, size);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Last sequence of the change feed the snapshot includes.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The product, or null when the snapshot does not have it.
+     */
+    public Product findById(int id) {
+        int row = Arrays.binarySearch(ids, id);
+        return row < 0 ? null : product(row);
+    }
+
+    public List<Product> findAll() {
+        List<Product> products = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            products.add(product(row));
+        }
+        return products;
+    }
+
+    /**
+     * At most limit products priced within the inclusive bounds, ordered by id.
+     */
+    public List<Product> findByPrice(double minPrice, double maxPrice, int limit) {
+        int from = firstPriced(minPrice, false);
+        int to = firstPriced(maxPrice, true);
+        if (to <= from) {
+            return new ArrayList<>();
+        }
+        // rows are in id order, the lowest rows within the range are the products
+        List<Product> products = new ArrayList<>(Math.min(limit, to - from));
+        if (to - from <= limit) {
+            int[] rows = Arrays.copyOfRange(byPrice, from, to);
+            Arrays.sort(rows);
+            for (int row : rows) {
+                products.add(product(row));
+            }
+            return products;
+        }
+        BitSet rows = new BitSet(size);
+        for (int i = from; i < to; i++) {
+            rows.set(byPrice[i]);
+        }
+        for (int row = rows.nextSetBit(0); products.size() < limit; row = rows.nextSetBit(row + 1)) {
+            products.add(product(row));
+        }
+        return products;
+    }
+
+    /**
+     * At most limit products priced within the inclusive bounds, ordered by price and then
+     * by id, both descending when asked for.
+     */
+    public List<Product> findByPriceOrderByPrice(double minPrice, double maxPrice, boolean descending, int limit) {
+        int from = firstPriced(minPrice, false);
+        int to = firstPriced(maxPrice, true);
+        int count = Math.max(0, Math.min(limit, to - from));
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(product(byPrice[descending ? to - 1 - i : from + i]));
+        }
+        return products;
+    }
+
+    /**
+     * A snapshot with the products of the changes put in and the deleted ones taken out,
+     * including the changes up to the given sequence. A change carries the state of its
+     * product when it was read, none for a deleted product.
+     */
+    public ProductSnapshot apply(long sequence, List<ProductChange> changes) {
+        SortedMap<Integer, Product> changed = new TreeMap<>();
+        for (ProductChange change : changes) {
+            changed.put(change.getProductId(), change.getProduct());
+        }
+
+        // sized exactly, the snapshot takes over the arrays of the builder
+        int newSize = size;
+        long newTextLength = text.length;
+        for (Map.Entry<Integer, Product> entry : changed.entrySet()) {
+            int row = Arrays.binarySearch(ids, entry.getKey());
+            if (row >= 0) {
+                newSize--;
+                newTextLength -= textOffsets[2 * row + 2] - textOffsets[2 * row];
+            }
+            Product product = entry.getValue();
+            if (product != null) {
+                newSize++;
+                newTextLength += utf8Length(product.getName()) + utf8Length(product.getDescription());
+            }
+        }
+        Builder builder = new Builder(newSize, Math.toIntExact(newTextLength));
+        // new row of each row kept as it is, -1 for a changed or deleted one
+        int[] keptRows = new int[size];
+        int[] changedRows = new int[changed.size()];
+        int changedCount = 0;
+        int row = 0;
+        for (Map.Entry<Integer, Product> entry : changed.entrySet()) {
+            int id = entry.getKey();
+            for (; row < size && ids[row] < id; row++) {
+                keptRows[row] = builder.size;
+                builder.copy(this, row);
+            }
+            if (row < size && ids[row] == id) {
+                keptRows[row++] = -1;
+            }
+            if (entry.getValue() != null) {
+                changedRows[changedCount++] = builder.size;
+                builder.add(entry.getValue());
+            }
+        }
+        for (; row < size; row++) {
+            keptRows[row] = builder.size;
+            builder.copy(this, row);
+        }
+
+        // the kept rows stay in price order, the changed ones are merged into them
+        double[] newPrices = builder.prices;
+        int[] sortedChanged = sortByPrice(newPrices, changedRows, changedCount);
+        int[] newByPrice = new int[builder.size];
+        int next = 0;
+        int merged = 0;
+        for (int oldRow : byPrice) {
+            int keptRow = keptRows[oldRow];
+            if (keptRow < 0) {
+                continue;
+            }
+            while (merged < changedCount && compareByPrice(newPrices, sortedChanged[merged], keptRow) < 0) {
+                newByPrice[next++] = sortedChanged[merged++];
+            }
+            newByPrice[next++] = keptRow;
+        }
+        while (merged < changedCount) {
+            newByPrice[next++] = sortedChanged[merged++];
+        }
+        builder.built = true;
+        return new ProductSnapshot(sequence, builder, newByPrice);
+    }
+
+    private Product product(int row) {
+        return Product.builder()
+                .id(ids[row])
+                .name(text(2 * row))
+                .price(prices[row])
+                .creationDate(toDateTime(creationDates[row]))
+                .description(text(2 * row + 1))
+                .version(versions[row] == NULL ? null : versions[row])
+                .lastModified(toDateTime(lastModified[row]))
+                .build();
+    }
+
+    private String text(int index) {
+        if (nullTexts.get(index)) {
+            return null;
+        }
+        int from = textOffsets[index];
+        return new String(text, from, textOffsets[index + 1] - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Position in byPrice of the first row priced above the given price, or at or above it.
+     */
+    private int firstPriced(double price, boolean above) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            double middlePrice = prices[byPrice[middle]];
+            if (above ? middlePrice <= price : middlePrice < price) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int[] sortByPrice(double[] prices, int size) {
+        int[] rows = new int[size];
+        for (int row = 0; row < size; row++) {
+            rows[row] = row;
+        }
+        return sortByPrice(prices, rows, size);
+    }
+
+    /**
+     * Merge sort of the rows by price and then by row, which is the id order.
+     */
+    private static int[] sortByPrice(double[] prices, int[] rows, int count) {
+        int[] sorted = Arrays.copyOf(rows, count);
+        int[] buffer = new int[count];
+        for (int width = 1; width < count; width *= 2) {
+            for (int from = 0; from < count - width; from += 2 * width) {
+                int middle = from + width;
+                int to = Math.min(from + 2 * width, count);
+                int left = from;
+                int right = middle;
+                for (int i = from; i < to; i++) {
+                    if (right >= to || left < middle && compareByPrice(prices, sorted[left], sorted[right]) <= 0) {
+                        buffer[i] = sorted[left++];
+                    } else {
+                        buffer[i] = sorted[right++];
+                    }
+                }
+                System.arraycopy(buffer, from, sorted, from, to - from);
+            }
+        }
+        return sorted;
+    }
+
+    private static int compareByPrice(double[] prices, int row, int otherRow) {
+        int byPrice = Double.compare(prices[row], prices[otherRow]);
+        return byPrice != 0 ? byPrice : Integer.compare(row, otherRow);
+    }
+
+    private static int utf8Length(String value) {
+        return value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static long toMicros(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return NULL;
+        }
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1_000;
+    }
+
+    private static LocalDateTime toDateTime(long micros) {
+        if (micros == NULL) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Collects products in ascending id order, the order of
+     * {@link ProductService#export}.
+     */
+    public static final class Builder {
+
+        private int size;
+        private int[] ids;
+        private double[] prices;
+        private long[] creationDates;
+        private long[] versions;
+        private long[] lastModified;
+        private byte[] text;
+        private int textLength;
+        private int[] textOffsets;
+        private final BitSet nullTexts = new BitSet();
+
+        private boolean built;
+
+        private Builder() {
+            this(1024, 64 * 1024);
+        }
+
+        private Builder(int capacity, int textCapacity) {
+            ids = new int[capacity];
+            prices = new double[capacity];
+            creationDates = new long[capacity];
+            versions = new long[capacity];
+            lastModified = new long[capacity];
+            text = new byte[textCapacity];
+            textOffsets = new int[2 * capacity + 1];
+        }
+
+        public Builder add(Product product) {
+            if (size > 0 && product.getId() <= ids[size - 1]) {
+                throw new IllegalArgumentException("products must be added in ascending id order, id="
+                        + product.getId() + " follows id=" + ids[size - 1]);
+            }
+            checkNotBuilt();
+            ensureCapacity();
+            ids[size] = product.getId();
+            prices[size] = product.getPrice();
+            creationDates[size] = toMicros(product.getCreationDate());
+            versions[size] = product.getVersion() == null ? NULL : product.getVersion();
+            lastModified[size] = toMicros(product.getLastModified());
+            addText(2 * size, product.getName());
+            addText(2 * size + 1, product.getDescription());
+            size++;
+            return this;
+        }
+
+        public ProductSnapshot build(long sequence) {
+            checkNotBuilt();
+            built = true;
+            return new ProductSnapshot(sequence, this, null);
+        }
+
+        private void checkNotBuilt() {
+            // the snapshot may share the arrays
+            if (built) {
+                throw new IllegalStateException("the snapshot was already built");
+            }
+        }
+
+        private void copy(ProductSnapshot snapshot, int row) {
+            ensureCapacity();
+            ids[size] = snapshot.ids[row];
+            prices[size] = snapshot.prices[row];
+            creationDates[size] = snapshot.creationDates[row];
+            versions[size] = snapshot.versions[row];
+            lastModified[size] = snapshot.lastModified[row];
+            for (int index = 2 * row; index < 2 * row + 2; index++) {
+                int target = 2 * size + index - 2 * row;
+                if (snapshot.nullTexts.get(index)) {
+                    addText(target, null);
+                } else {
+                    int from = snapshot.textOffsets[index];
+                    addText(target, snapshot.text, from, snapshot.textOffsets[index + 1] - from);
+                }
+            }
+            size++;
+        }
+
+        private void addText(int index, String value) {
+            if (value == null) {
+                nullTexts.set(index);
+                addText(index, text, 0, 0);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                addText(index, bytes, 0, bytes.length);
+            }
+        }
+
+        private void addText(int index, byte[] source, int from, int length) {
+            int end = Math.addExact(textLength, length);
+            if (end > text.length) {
+                text = Arrays.copyOf(text, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(end, 2L * text.length)));
+            }
+            System.arraycopy(source, from, text, textLength, length);
+            textLength = end;
+            textOffsets[index + 1] = end;
+        }
+
+        private void ensureCapacity() {
+            if (size < ids.length) {
+                return;
+            }
+            int capacity = Math.max(16, 2 * ids.length);
+            ids = Arrays.copyOf(ids, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            creationDates = Arrays.copyOf(creationDates, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            lastModified = Arrays.copyOf(lastModified, capacity);
+            textOffsets = Arrays.copyOf(textOffsets, 2 * capacity + 1);
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.parashchak.online.shop.spring.boot.config.DataSourceRouting;
+import com.parashchak.online.shop.spring.boot.entity.BatchResult;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductChange;
+import com.parashchak.online.shop.spring.boot.entity.ProductChanges;
+import com.parashchak.online.shop.spring.boot.entity.ProductFilter;
+import com.parashchak.online.shop.spring.boot.entity.ProductPage;
+import com.parashchak.online.shop.spring.boot.entity.WriteReceipt;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import static com.parashchak.online.shop.spring.boot.service.ProductServiceImpl.MAX_PAGE_LIMIT;
+
+/**
+ * Serves findAll, findById and price range queries from a {@link ProductSnapshot} held in
+ * memory, without a transaction or a connection, everything else from the database through
+ * {@link ProductServiceImpl}. The snapshot is built when the application is ready and kept
+ * up to date from the change feed by a background thread, woken by the changes of every node
+ * and of write-behind flushes. A write on this node wakes it as well and waits a moment for
+ * its changes to be swapped in, so the writer reads them back. Only the background thread
+ * copies the snapshot, one copy covers the changes of all writers that waited meanwhile.
+ * A new snapshot is swapped in once all changes read are applied, a reader sees either all
+ * of them or none. When the changes it needs were purged, the snapshot is built anew.
+ * <p>
+ * A product missing from the snapshot, possibly added by another node a moment ago, is
+ * looked up in the database.
+ */
+@Slf4j
+public class ProductSnapshotService implements ProductService, DisposableBean {
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+    private static final Duration MAX_REFRESH_WAIT = Duration.ofSeconds(1);
+
+    private final ProductServiceImpl productService;
+    private final ProductChangeFeed productChangeFeed;
+    // only present when online-shop.write-behind.enabled is set
+    private final ObjectProvider<ProductWriteBehind> productWriteBehind;
+    private final Duration wait;
+    // taken by rebuilds and refreshes, never by reads
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final ReentrantLock swapLock = new ReentrantLock();
+    private final Condition swapped = swapLock.newCondition();
+    private volatile ProductSnapshot snapshot;
+    private volatile CompletableFuture<ProductChanges> awaitedChanges;
+    private Thread refresher;
+
+    public ProductSnapshotService(ProductServiceImpl productService,
+                                  ProductChangeFeed productChangeFeed,
+                                  ObjectProvider<ProductWriteBehind> productWriteBehind,
+                                  Duration wait) {
+        this.productService = productService;
+        this.productChangeFeed = productChangeFeed;
+        this.productWriteBehind = productWriteBehind;
+        this.wait = wait;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuild();
+        refresher = Thread.ofVirtual().name("product-snapshot").start(this::refreshContinuously);
+    }
+
+    /**
+     * Builds the snapshot from all products. The last sequence is read first, changes
+     * committed while the products are read are applied again by the next refresh.
+     */
+    public void rebuild() {
+        refreshLock.lock();
+        try {
+            long sequence = productChangeFeed.findLastSequence();
+            ProductSnapshot.Builder builder = ProductSnapshot.builder();
+            // a replica may not have the changes up to the sequence yet
+            DataSourceRouting.onPrimary(() -> {
+                productService.export(builder::add);
+                return null;
+            });
+            swap(builder.build(sequence));
+            // the refresher may wait for changes after the sequence of the replaced snapshot
+            CompletableFuture<ProductChanges> awaited = awaitedChanges;
+            if (awaited != null) {
+                awaited.cancel(false);
+            }
+            log.info("built a snapshot of {} products up to change {}", snapshot.size(), sequence);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Applies the changes after the sequence of the snapshot, if any.
+     */
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            ProductSnapshot current = snapshot;
+            if (current == null) {
+                return;
+            }
+            List<ProductChange> changes = new ArrayList<>();
+            long last = current.getSequence();
+            ProductChanges found;
+            do {
+                try {
+                    found = productChangeFeed.find(last, MAX_PAGE_LIMIT);
+                } catch (IllegalArgumentException exception) {
+                    log.warn("changes after {} were purged, rebuilding the product snapshot", last);
+                    rebuild();
+                    return;
+                }
+                changes.addAll(found.getChanges());
+                last = found.getLast();
+            } while (found.getChanges().size() == MAX_PAGE_LIMIT);
+            if (!changes.isEmpty()) {
+                swap(current.apply(last, changes));
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Product> findAll() {
+        ProductSnapshot current = snapshot;
+        if (current == null) {
+            return productService.findAll();
+        }
+        CatalogVersion.record(current.getSequence());
+        return withPendingWrites(current.findAll());
+    }
+
+    @Override
+    public ProductPage findPage(String after, int limit) {
+        return productService.findPage(after, limit);
+    }
+
+    @Override
+    public List<Product> findFiltered(ProductFilter filter) {
+        ProductSnapshot current = snapshot;
+        if (current == null || !isPriceRange(filter)) {
+            return productService.findFiltered(filter);
+        }
+        double minPrice = filter.getMinPrice() == null ? Double.NEGATIVE_INFINITY : filter.getMinPrice();
+        double maxPrice = filter.getMaxPrice() == null ? Double.POSITIVE_INFINITY : filter.getMaxPrice();
+        int limit = filter.getLimit() == null ? MAX_PAGE_LIMIT : filter.getLimit();
+        CatalogVersion.record(current.getSequence());
+        List<Product> products = filter.getSort() == null
+                ? current.findByPrice(minPrice, maxPrice, limit)
+                : current.findByPriceOrderByPrice(minPrice, maxPrice, filter.getSort().startsWith("-"), limit);
+        return withPendingWrites(products);
+    }
+
+    @Override
+    public List<Map<String, Object>> findFields(ProductFilter filter, List<String> fields) {
+        return productService.findFields(filter, fields);
+    }
+
+    @Override
+    public void export(Consumer<Product> consumer) {
+        productService.export(consumer);
+    }
+
+    /**
+     * The sequence of the snapshot, a view of the snapshot must not be validated by a
+     * version it does not contain yet.
+     */
+    @Override
+    public Long findCatalogVersion() {
+        ProductSnapshot current = snapshot;
+        ProductWriteBehind writeBehind = productWriteBehind.getIfAvailable();
+        if (current == null || writeBehind != null && writeBehind.hasPendingUpdates()) {
+            return productService.findCatalogVersion();
+        }
+        return current.getSequence();
+    }
+
+    @Override
+    public void add(Product product) {
+        productService.add(product);
+        refreshAfterWrite();
+    }
+
+    @Override
+    public Product findById(int id) {
+        ProductSnapshot current = snapshot;
+        Product product = current == null ? null : current.findById(id);
+        if (product == null) {
+            return productService.findById(id);
+        }
+        ProductWriteBehind writeBehind = productWriteBehind.getIfAvailable();
+        return writeBehind == null ? product : writeBehind.withPendingWrites(product);
+    }
+
+    @Override
+    public List<Product> search(String text) {
+        return productService.search(text);
+    }
+
+    @Override
+    public List<Map<String, Object>> searchFields(String text, List<String> fields) {
+        return productService.searchFields(text, fields);
+    }
+
+    @Override
+    public void deleteById(int id) {
+        productService.deleteById(id);
+        refreshAfterWrite();
+    }
+
+    @Override
+    public void update(int id, Product product) {
+        productService.update(id, product);
+        refreshAfterWrite();
+    }
+
+    @Override
+    public List<BatchResult> addAll(List<Product> products) {
+        List<BatchResult> results = productService.addAll(products);
+        refreshAfterWrite();
+        return results;
+    }
+
+    @Override
+    public List<BatchResult> updateAll(List<Product> products) {
+        List<BatchResult> results = productService.updateAll(products);
+        refreshAfterWrite();
+        return results;
+    }
+
+    @Override
+    public List<BatchResult> deleteAllById(List<Integer> ids) {
+        List<BatchResult> results = productService.deleteAllById(ids);
+        refreshAfterWrite();
+        return results;
+    }
+
+    @Override
+    public boolean isWriteBehind() {
+        return productService.isWriteBehind();
+    }
+
+    @Override
+    public WriteReceipt submitAdd(Product product) {
+        return productService.submitAdd(product);
+    }
+
+    @Override
+    public WriteReceipt submitUpdate(int id, Product product) {
+        return productService.submitUpdate(id, product);
+    }
+
+    @Override
+    public WriteReceipt findWrite(String trackingId) {
+        return productService.findWrite(trackingId);
+    }
+
+    @Override
+    public ProductChanges findChanges(long since, int limit) {
+        return productService.findChanges(since, limit);
+    }
+
+    @Override
+    public CompletableFuture<ProductChanges> awaitChanges(long since, int limit, Duration wait) {
+        return productService.awaitChanges(since, limit, wait);
+    }
+
+    @Override
+    public void destroy() {
+        if (refresher != null) {
+            refresher.interrupt();
+        }
+    }
+
+    private void refreshContinuously() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                try {
+                    awaitedChanges = productChangeFeed.await(snapshot.getSequence(), 1, wait);
+                    awaitedChanges.get();
+                } catch (ExecutionException | CancellationException | IllegalArgumentException exception) {
+                    // refresh rebuilds the snapshot when the changes were purged, and fails on anything else
+                }
+                refresh();
+            } catch (InterruptedException exception) {
+                return;
+            } catch (RuntimeException exception) {
+                log.warn("refreshing the product snapshot failed, retrying in {}", RETRY_DELAY, exception);
+                try {
+                    Thread.sleep(RETRY_DELAY);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void swap(ProductSnapshot refreshed) {
+        swapLock.lock();
+        try {
+            snapshot = refreshed;
+            swapped.signalAll();
+        } finally {
+            swapLock.unlock();
+        }
+    }
+
+    /**
+     * Wakes the refresher and waits up to {@link #MAX_REFRESH_WAIT} for a snapshot with the
+     * changes committed so far. The write is committed, a snapshot that does not catch up in
+     * time has it a moment later.
+     */
+    private void refreshAfterWrite() {
+        if (snapshot == null) {
+            return;
+        }
+        long sequence;
+        try {
+            sequence = productChangeFeed.findLastSequence();
+        } catch (RuntimeException exception) {
+            log.warn("could not read the sequence of a write, not waiting for the product snapshot", exception);
+            return;
+        }
+        // the refresher reads the changes again when its wait ends early
+        CompletableFuture<ProductChanges> awaited = awaitedChanges;
+        if (awaited != null) {
+            awaited.complete(null);
+        }
+        swapLock.lock();
+        try {
+            long nanos = MAX_REFRESH_WAIT.toNanos();
+            while (snapshot.getSequence() < sequence && nanos > 0) {
+                nanos = swapped.awaitNanos(nanos);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } finally {
+            swapLock.unlock();
+        }
+    }
+
+    private List<Product> withPendingWrites(List<Product> products) {
+        ProductWriteBehind writeBehind = productWriteBehind.getIfAvailable();
+        return writeBehind == null ? products : writeBehind.withPendingWrites(products);
+    }
+
+    /**
+     * Valid filters on price only, ordered by id or by price. Anything else, and the
+     * errors of invalid filters, are left to the database.
+     */
+    private static boolean isPriceRange(ProductFilter filter) {
+        return filter.getCreatedFrom() == null && filter.getCreatedTo() == null
+                && (filter.getSort() == null || filter.getSort().equals("price") || filter.getSort().equals("-price"))
+                && (filter.getLimit() == null || filter.getLimit() >= 1 && filter.getLimit() <= MAX_PAGE_LIMIT)
+                && (filter.getMinPrice() == null || filter.getMaxPrice() == null
+                || filter.getMinPrice() <= filter.getMaxPrice());
+    }
+}
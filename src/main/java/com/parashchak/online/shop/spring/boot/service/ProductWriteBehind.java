@@ -0,0 +1,422 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parashchak.online.shop.spring.boot.config.ClusterCacheResolver;
+import com.parashchak.online.shop.spring.boot.config.WriteBehindProperties;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductChange;
+import com.parashchak.online.shop.spring.boot.entity.WriteBehindCheckpoint;
+import com.parashchak.online.shop.spring.boot.entity.WriteReceipt;
+import com.parashchak.online.shop.spring.boot.exception.ProductNotFoundException;
+import com.parashchak.online.shop.spring.boot.repository.ProductRepository;
+import com.parashchak.online.shop.spring.boot.repository.WriteBehindCheckpointRepository;
+import com.parashchak.online.shop.spring.boot.service.WriteBehindJournal.Entry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.parashchak.online.shop.spring.boot.config.CacheConfig.PRODUCTS_CACHE;
+
+/**
+ * Write-behind mode of {@link ProductServiceImpl}: adds and updates are appended to a local
+ * {@link WriteBehindJournal} and acknowledged, a scheduled flush writes them to the database
+ * in JDBC batches, of several pending updates of a product only the last one. The sequence of
+ * the last flushed write is committed with each batch, so a journal replayed after a crash
+ * skips the writes that already reached the database.
+ * <p>
+ * A write is journaled under a lock and forced to disk outside it, with group commit, so
+ * concurrent submits share one force. It is acknowledged once forced; when the force fails
+ * the submit fails, but the write was journaled and may still be flushed.
+ * <p>
+ * Reads see the pending updates without taking the lock, from the moment they are journaled.
+ * What they do not see until the flush: pending adds, which have no id yet and are not listed,
+ * pending updates journaled on another node, since the journal is node-local, and pending
+ * updates in the search index, which matches them by their flushed fields. A client that needs
+ * its write everywhere polls its receipt until it is flushed.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ProductWriteBehind implements InitializingBean, DisposableBean {
+
+    private static final int MAX_RECEIPTS = 10_000;
+
+    private final WriteBehindProperties properties;
+    private final ObjectMapper objectMapper;
+    private final ProductRepository productRepository;
+    private final WriteBehindCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductSearchIndex productSearchIndex;
+    private final ClusterCacheResolver clusterCacheResolver;
+    private final ProductChangeFeed productChangeFeed;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // guards the pending writes, the sequences, the receipts and the order of the journal
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Entry> pending = new ArrayDeque<>();
+    // the last pending update of each product, read without the lock
+    private final Map<Integer, Product> pendingUpdates = new ConcurrentHashMap<>();
+    private final Map<Long, WriteReceipt> receipts = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, WriteReceipt> eldest) {
+            return size() > MAX_RECEIPTS;
+        }
+    };
+    private WriteBehindJournal journal;
+    private long lastSequence;
+    private long flushedSequence;
+    // flushed entries included, until the journal is rewritten
+    private int journaledEntries;
+
+    /**
+     * Opens the journal and takes its writes newer than the checkpoint as pending.
+     */
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        journal = WriteBehindJournal.open(properties.journal(), objectMapper);
+        long checkpoint = checkpointRepository.findById(journal.getId())
+                .map(WriteBehindCheckpoint::getFlushedSequence)
+                .orElse(0L);
+        lock.lock();
+        try {
+            flushedSequence = checkpoint;
+            lastSequence = checkpoint;
+            for (Entry entry : journal.getEntries()) {
+                lastSequence = Math.max(lastSequence, entry.sequence());
+                if (entry.sequence() > checkpoint) {
+                    addPending(entry);
+                }
+            }
+            journaledEntries = journal.getEntries().size();
+        } finally {
+            lock.unlock();
+        }
+        if (!pending.isEmpty()) {
+            log.info("replaying {} writes of journal {}", pending.size(), properties.journal());
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        journal.close();
+    }
+
+    public WriteReceipt submitAdd(Product product) {
+        return submit(Entry.Type.ADD, null, product);
+    }
+
+    public WriteReceipt submitUpdate(int id, Product product) {
+        return submit(Entry.Type.UPDATE, id, product);
+    }
+
+    public WriteReceipt findWrite(long sequence) {
+        lock.lock();
+        try {
+            if (sequence < 1 || sequence > lastSequence) {
+                throw new ProductNotFoundException("write " + sequence + " not found");
+            }
+            WriteReceipt receipt = receipts.get(sequence);
+            if (receipt != null) {
+                return receipt;
+            }
+            if (sequence <= flushedSequence) {
+                return new WriteReceipt(String.valueOf(sequence), WriteReceipt.Status.FLUSHED, null, null);
+            }
+            Integer id = pending.stream()
+                    .filter(entry -> entry.sequence() == sequence)
+                    .findFirst()
+                    .map(Entry::id)
+                    .orElse(null);
+            return new WriteReceipt(String.valueOf(sequence), WriteReceipt.Status.PENDING, id, null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The product with its pending update applied. It has no version, it is
+     * not the one in the database and must not be cached by version.
+     */
+    public Product withPendingWrites(Product product) {
+        Product update = pendingUpdates.get(product.getId());
+        if (update == null) {
+            return product;
+        }
+        CatalogVersion.recordUnknown();
+        return Product.builder()
+                .id(product.getId())
+                .name(update.getName())
+                .price(update.getPrice())
+                .creationDate(product.getCreationDate())
+                .description(update.getDescription())
+                .lastModified(product.getLastModified())
+                .build();
+    }
+
+    public List<Product> withPendingWrites(List<Product> products) {
+        if (pendingUpdates.isEmpty()) {
+            return products;
+        }
+        return products.stream().map(this::withPendingWrites).toList();
+    }
+
+    /**
+     * The selected fields of the products with their pending updates applied,
+     * the version of an updated product is null like in {@link #withPendingWrites(Product)}.
+     */
+    public List<Map<String, Object>> withPendingFields(List<Map<String, Object>> products) {
+        if (pendingUpdates.isEmpty()) {
+            return products;
+        }
+        return products.stream().map(this::withPendingFields).toList();
+    }
+
+    private Map<String, Object> withPendingFields(Map<String, Object> product) {
+        Product update = pendingUpdates.get((Integer) product.get("id"));
+        if (update == null) {
+            return product;
+        }
+        CatalogVersion.recordUnknown();
+        Map<String, Object> updated = new LinkedHashMap<>(product);
+        updated.replace("name", update.getName());
+        updated.replace("price", update.getPrice());
+        updated.replace("description", update.getDescription());
+        updated.replace("version", null);
+        return updated;
+    }
+
+    public boolean hasPendingUpdates() {
+        return !pendingUpdates.isEmpty();
+    }
+
+    int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the pending writes to the database, in transactions of at most max flush size
+     * writes. When the database is unavailable the writes stay pending for the next flush.
+     */
+    @Scheduled(fixedDelayString = "${online-shop.write-behind.flush-interval:PT0.1S}",
+            initialDelayString = "${online-shop.write-behind.flush-interval:PT0.1S}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Entry> batch;
+            while (!(batch = nextBatch()).isEmpty()) {
+                try {
+                    flushBatch(batch);
+                } catch (CannotCreateTransactionException exception) {
+                    log.warn("database unavailable, {} writes stay pending", getPendingCount(), exception);
+                    return;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private WriteReceipt submit(Entry.Type type, Integer id, Product product) {
+        Entry entry;
+        lock.lock();
+        try {
+            if (pending.size() >= properties.capacity()) {
+                throw new RejectedExecutionException("write-behind journal is full, "
+                        + pending.size() + " writes pending");
+            }
+            // the version was checked against the database, which the pending update will change
+            if (type == Entry.Type.UPDATE && product.getVersion() != null && pendingUpdates.containsKey(id)) {
+                throw new OptimisticLockingFailureException("product with id=" + id
+                        + " has a pending update, expected version=" + product.getVersion() + " is outdated");
+            }
+            entry = new Entry(lastSequence + 1, type, id, product);
+            try {
+                journal.write(entry);
+            } catch (IOException exception) {
+                throw new UncheckedIOException("could not journal write " + entry.sequence(), exception);
+            }
+            lastSequence = entry.sequence();
+            journaledEntries++;
+            addPending(entry);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            // outside the lock, submits journaled meanwhile share the force
+            journal.force(entry.sequence());
+        } catch (IOException exception) {
+            throw new UncheckedIOException("could not force write " + entry.sequence() + " to disk", exception);
+        }
+        return new WriteReceipt(String.valueOf(entry.sequence()), WriteReceipt.Status.PENDING, id, null);
+    }
+
+    private void addPending(Entry entry) {
+        pending.addLast(entry);
+        if (entry.type() == Entry.Type.UPDATE) {
+            pendingUpdates.put(entry.id(), entry.product());
+        }
+    }
+
+    private List<Entry> nextBatch() {
+        lock.lock();
+        try {
+            return pending.stream().limit(properties.maxFlushSize()).toList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushBatch(List<Entry> batch) {
+        List<Flushed> flushed;
+        try {
+            flushed = transactionTemplate.execute(status -> write(batch));
+        } catch (CannotCreateTransactionException exception) {
+            throw exception;
+        } catch (RuntimeException exception) {
+            // one bad write must not hold back the others
+            log.warn("flush of {} writes failed, writing them one by one", batch.size(), exception);
+            for (Entry entry : batch) {
+                flushEntry(entry);
+            }
+            return;
+        }
+        complete(flushed);
+    }
+
+    private void flushEntry(Entry entry) {
+        List<Flushed> flushed;
+        try {
+            flushed = transactionTemplate.execute(status -> write(List.of(entry)));
+        } catch (CannotCreateTransactionException exception) {
+            throw exception;
+        } catch (RuntimeException exception) {
+            log.warn("write {} failed and is dropped", entry.sequence(), exception);
+            transactionTemplate.executeWithoutResult(status -> saveCheckpoint(entry.sequence()));
+            flushed = List.of(new Flushed(entry, null, new WriteReceipt(String.valueOf(entry.sequence()),
+                    WriteReceipt.Status.FAILED, entry.id(), exception.getMessage())));
+        }
+        complete(flushed);
+    }
+
+    /**
+     * Adds are inserted as one JDBC batch, updates of the same product are coalesced
+     * into the last one and written by dirty checking when the changes are recorded.
+     */
+    private List<Flushed> write(List<Entry> batch) {
+        List<Product> added = new ArrayList<>();
+        Map<Integer, Product> updates = new LinkedHashMap<>();
+        for (Entry entry : batch) {
+            if (entry.type() == Entry.Type.ADD) {
+                // a new instance per attempt, a failed one may have assigned an id
+                added.add(newProduct(entry.product()));
+            } else {
+                updates.put(entry.id(), entry.product());
+            }
+        }
+        productRepository.saveAll(added);
+        Map<Integer, Product> updatedProducts = new HashMap<>();
+        productRepository.findAllById(updates.keySet()).forEach(found -> {
+            Product update = updates.get(found.getId());
+            found.setName(update.getName());
+            found.setPrice(update.getPrice());
+            found.setDescription(update.getDescription());
+            updatedProducts.put(found.getId(), found);
+        });
+        productChangeFeed.record(ProductChange.Type.CREATED, added.stream().map(Product::getId).toList());
+        productChangeFeed.record(ProductChange.Type.UPDATED, updatedProducts.keySet());
+        saveCheckpoint(batch.get(batch.size() - 1).sequence());
+
+        List<Flushed> flushed = new ArrayList<>(batch.size());
+        Iterator<Product> addedProducts = added.iterator();
+        for (Entry entry : batch) {
+            String trackingId = String.valueOf(entry.sequence());
+            if (entry.type() == Entry.Type.ADD) {
+                Product product = addedProducts.next();
+                flushed.add(new Flushed(entry, product,
+                        new WriteReceipt(trackingId, WriteReceipt.Status.FLUSHED, product.getId(), null)));
+            } else if (updatedProducts.containsKey(entry.id())) {
+                flushed.add(new Flushed(entry, updatedProducts.get(entry.id()),
+                        new WriteReceipt(trackingId, WriteReceipt.Status.FLUSHED, entry.id(), null)));
+            } else {
+                flushed.add(new Flushed(entry, null, new WriteReceipt(trackingId, WriteReceipt.Status.FAILED,
+                        entry.id(), "product with id=" + entry.id() + " not found")));
+            }
+        }
+        return flushed;
+    }
+
+    private void saveCheckpoint(long sequence) {
+        checkpointRepository.save(new WriteBehindCheckpoint(journal.getId(), sequence));
+    }
+
+    private void complete(List<Flushed> flushed) {
+        lock.lock();
+        try {
+            for (Flushed write : flushed) {
+                Entry entry = pending.removeFirst();
+                if (entry.type() == Entry.Type.UPDATE) {
+                    // unless a later update of the product is pending
+                    pendingUpdates.remove(entry.id(), entry.product());
+                }
+                receipts.put(entry.sequence(), write.receipt());
+                flushedSequence = entry.sequence();
+            }
+            compactJournal();
+        } finally {
+            lock.unlock();
+        }
+        for (Flushed write : flushed) {
+            if (write.product() != null) {
+                productSearchIndex.put(write.product());
+            }
+            if (write.entry().type() == Entry.Type.UPDATE) {
+                clusterCacheResolver.evict(PRODUCTS_CACHE, write.entry().id());
+            }
+        }
+    }
+
+    /**
+     * Drops the flushed writes from the journal once there are no pending ones,
+     * or when the flushed ones are as many as the capacity.
+     */
+    private void compactJournal() {
+        if (!pending.isEmpty() && journaledEntries - pending.size() < properties.capacity()) {
+            return;
+        }
+        try {
+            journal.rewrite(new ArrayList<>(pending));
+            journaledEntries = pending.size();
+        } catch (IOException exception) {
+            // the checkpoint keeps flushed writes from being replayed, compaction is retried after the next flush
+            log.warn("could not compact journal {}", properties.journal(), exception);
+        }
+    }
+
+    private static Product newProduct(Product product) {
+        return Product.builder()
+                .name(product.getName())
+                .price(product.getPrice())
+                .creationDate(product.getCreationDate())
+                .description(product.getDescription())
+                .build();
+    }
+
+    private record Flushed(Entry entry, Product product, WriteReceipt receipt) {
+    }
+}
@@ -0,0 +1,87 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.parashchak.online.shop.spring.boot.config.DataSourceRouting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.After;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces concurrent {@link SingleFlight} reads with equal arguments that read from the
+ * same database, a caller that requires the primary does not join a read of a replica.
+ * Ordered inside the caching advice, so only cache misses are coalesced, and outside the
+ * transactional one, so waiting callers hold no connection. A write
+ * forgets the reads in flight after its commit: every write to the database records its
+ * changes in the {@link ProductChangeFeed}, a journaled write-behind update evicts the
+ * product from the cache. Joined calls are counted as product.single.flight.joined by method.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class SingleFlightAspect {
+
+    private static final String METRIC_NAME = "product.single.flight.joined";
+
+    private final SingleFlightGroup<Key> group;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public SingleFlightAspect(@Value("${online-shop.single-flight.timeout:5s}") Duration timeout,
+                              MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.group = new SingleFlightGroup<>(timeout, this::countJoin);
+    }
+
+    @Around("@annotation(com.parashchak.online.shop.spring.boot.service.SingleFlight)")
+    public Object coalesce(ProceedingJoinPoint joinPoint) throws Throwable {
+        Key key = new Key(joinPoint.getSignature().getName(), Arrays.asList(joinPoint.getArgs()),
+                DataSourceRouting.isPrimaryRequired());
+        return group.execute(key, joinPoint::proceed);
+    }
+
+    @After("@annotation(org.springframework.cache.annotation.CacheEvict)"
+            + " && within(com.parashchak.online.shop.spring.boot.service..*)")
+    public void forgetInFlightReads() {
+        group.forget();
+    }
+
+    /**
+     * Batch writes and write-behind flushes evict nothing per product, they are recognized
+     * by the changes they record.
+     */
+    @AfterReturning("execution(* com.parashchak.online.shop.spring.boot.service.ProductChangeFeed.record(..))")
+    public void forgetInFlightReadsAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                group.forget();
+            }
+        });
+    }
+
+    private void countJoin(Key key) {
+        counters.computeIfAbsent(key.method(), method -> Counter.builder(METRIC_NAME)
+                        .description("calls that shared the result of an identical call in flight")
+                        .tag("method", method)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    private record Key(String method, List<Object> arguments, boolean primaryRequired) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * At most one call per key in flight. The first caller runs it, callers arriving while
+ * it runs wait up to the timeout and get the same result or the same exception.
+ * Nothing is kept once the call is done.
+ */
+public class SingleFlightGroup<K> {
+
+    @FunctionalInterface
+    public interface Call {
+        Object call() throws Throwable;
+    }
+
+    private final Map<K, CompletableFuture<Object>> calls = new ConcurrentHashMap<>();
+    private final Duration timeout;
+    private final Consumer<K> joinListener;
+
+    public SingleFlightGroup(Duration timeout, Consumer<K> joinListener) {
+        this.timeout = timeout;
+        this.joinListener = joinListener;
+    }
+
+    public Object execute(K key, Call call) throws Throwable {
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = calls.putIfAbsent(key, own);
+        if (inFlight == null) {
+            try {
+                Object result = call.call();
+                own.complete(result);
+                return result;
+            } catch (Throwable throwable) {
+                own.completeExceptionally(throwable);
+                throw throwable;
+            } finally {
+                calls.remove(key, own);
+            }
+        }
+
+        joinListener.accept(key);
+        try {
+            return inFlight.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException exception) {
+            throw exception.getCause();
+        } catch (TimeoutException exception) {
+            throw new QueryTimeoutException("no result for " + key + " within " + timeout);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException("interrupted while waiting for " + key);
+        }
+    }
+
+    /**
+     * Later callers start a call of their own instead of joining one already in flight,
+     * which may have read the data before a write.
+     */
+    public void forget() {
+        calls.clear();
+    }
+}
@@ -0,0 +1,231 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only file of product writes: a header line with the id of the journal, then one
+ * JSON line per write. A write is on disk once forced, with group commit: a force waiting
+ * for the one in progress covers every entry written meanwhile, so concurrent writers share
+ * one force instead of queueing one each. A last line cut short by a crash is dropped when
+ * the journal is opened.
+ */
+class WriteBehindJournal implements Closeable {
+
+    private static final byte NEW_LINE = '\n';
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final String id;
+    private final List<Entry> entries;
+    // guards writes to the channel, held for no force
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private FileChannel channel;
+    private volatile long writtenSequence;
+    private volatile long forcedSequence;
+    private final AtomicLong forces = new AtomicLong();
+
+    private WriteBehindJournal(Path path, ObjectMapper objectMapper, String id, List<Entry> entries) throws IOException {
+        this.path = path;
+        this.objectMapper = objectMapper;
+        this.id = id;
+        this.entries = entries;
+        this.channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // what survived on disk
+        this.writtenSequence = entries.stream().mapToLong(Entry::sequence).max().orElse(0);
+        this.forcedSequence = writtenSequence;
+    }
+
+    /**
+     * Opens the journal at the path, or creates an empty one with a new id.
+     */
+    static WriteBehindJournal open(Path path, ObjectMapper objectMapper) throws IOException {
+        if (!Files.exists(path) || Files.size(path) == 0) {
+            String id = UUID.randomUUID().toString();
+            write(path, objectMapper, id, List.of());
+            return new WriteBehindJournal(path, objectMapper, id, List.of());
+        }
+
+        byte[] bytes = Files.readAllBytes(path);
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == NEW_LINE) {
+                lines.add(new String(bytes, start, i - start, StandardCharsets.UTF_8));
+                start = i + 1;
+            }
+        }
+        if (start < bytes.length) {
+            // the last append did not complete
+            try (FileChannel truncated = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                truncated.truncate(start);
+                truncated.force(true);
+            }
+        }
+        if (lines.isEmpty()) {
+            throw new IOException("journal " + path + " has no header");
+        }
+
+        String id = objectMapper.readValue(lines.get(0), Header.class).id();
+        List<Entry> entries = new ArrayList<>(lines.size() - 1);
+        for (String line : lines.subList(1, lines.size())) {
+            entries.add(objectMapper.readValue(line, Entry.class));
+        }
+        return new WriteBehindJournal(path, objectMapper, id, List.copyOf(entries));
+    }
+
+    String getId() {
+        return id;
+    }
+
+    /**
+     * The entries found when the journal was opened.
+     */
+    List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Writes the entry and forces it to disk.
+     */
+    void append(Entry entry) throws IOException {
+        write(entry);
+        force(entry.sequence());
+    }
+
+    /**
+     * Writes the entry without forcing it, entries are written in the order of their sequences.
+     */
+    void write(Entry entry) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap(line(objectMapper, entry));
+        writeLock.lock();
+        try {
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            writtenSequence = entry.sequence();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns once the entries up to the sequence are on disk.
+     */
+    void force(long sequence) throws IOException {
+        if (forcedSequence >= sequence) {
+            return;
+        }
+        forceLock.lock();
+        try {
+            // forced by the writer this one waited for
+            if (forcedSequence >= sequence) {
+                return;
+            }
+            long written = writtenSequence;
+            channel.force(false);
+            forces.incrementAndGet();
+            forcedSequence = written;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    long getForces() {
+        return forces.get();
+    }
+
+    /**
+     * Replaces the content of the journal with the entries, atomically. The entries are
+     * on disk once this returns.
+     */
+    void rewrite(List<Entry> entries) throws IOException {
+        forceLock.lock();
+        writeLock.lock();
+        try {
+            Path rewritten = path.resolveSibling(path.getFileName() + ".tmp");
+            write(rewritten, objectMapper, id, entries);
+            channel.close();
+            Files.move(rewritten, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // the rename is durable once the directory is
+            forceDirectory(path);
+            channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            forcedSequence = writtenSequence;
+        } finally {
+            writeLock.unlock();
+            forceLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        forceLock.lock();
+        writeLock.lock();
+        try {
+            channel.close();
+        } finally {
+            writeLock.unlock();
+            forceLock.unlock();
+        }
+    }
+
+    private static void write(Path path, ObjectMapper objectMapper, String id, List<Entry> entries) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            file.write(ByteBuffer.wrap(line(objectMapper, new Header(id))));
+            for (Entry entry : entries) {
+                file.write(ByteBuffer.wrap(line(objectMapper, entry)));
+            }
+            file.force(true);
+        }
+    }
+
+    private static void forceDirectory(Path path) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static byte[] line(ObjectMapper objectMapper, Object value) throws JsonProcessingException {
+        byte[] json = objectMapper.writeValueAsBytes(value);
+        byte[] line = new byte[json.length + 1];
+        System.arraycopy(json, 0, line, 0, json.length);
+        line[json.length] = NEW_LINE;
+        return line;
+    }
+
+    record Header(String id) {
+    }
+
+    /**
+     * A journaled write, the id is the one of the updated product and null for an add.
+     */
+    record Entry(long sequence, Type type, Integer id, Product product) {
+
+        enum Type {
+            ADD, UPDATE
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.parashchak.online.shop.spring.boot.web;
+
+import com.parashchak.online.shop.spring.boot.config.SqlStatistics;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One line per request to the "access" logger. Successful requests are sampled with
+ * online-shop.access-log.sample-rate, failed ones are always logged.
+ */
+@Component
+public class AccessLogInterceptor implements HandlerInterceptor {
+
+    static final String RESULT_COUNT_ATTRIBUTE = AccessLogInterceptor.class.getName() + ".resultCount";
+    private static final String START_ATTRIBUTE = AccessLogInterceptor.class.getName() + ".start";
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("access");
+
+    private final boolean enabled;
+    private final double sampleRate;
+
+    public AccessLogInterceptor(@Value("${online-shop.access-log.enabled:true}") boolean enabled,
+                                @Value("${online-shop.access-log.sample-rate:1.0}") double sampleRate) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (enabled && ACCESS_LOG.isInfoEnabled()) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception exception) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        boolean failed = exception != null || response.getStatus() >= 500;
+        if (!failed && sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+
+        long latencyMicros = (System.nanoTime() - (long) start) / 1000;
+        SqlStatistics sqlStatistics = (SqlStatistics) request.getAttribute(SqlStatisticsInterceptor.SQL_STATISTICS_ATTRIBUTE);
+        ACCESS_LOG.info("method={} endpoint={} status={} count={} id={} latencyMicros={} statements={} sqlMicros={}",
+                request.getMethod(),
+                request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE),
+                response.getStatus(),
+                request.getAttribute(RESULT_COUNT_ATTRIBUTE),
+                pathId(request),
+                latencyMicros,
+                sqlStatistics == null ? null : sqlStatistics.getStatements(),
+                sqlStatistics == null ? null : sqlStatistics.getTimeNanos() / 1000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String pathId(HttpServletRequest request) {
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        return variables == null ? null : variables.get("id");
+    }
+}
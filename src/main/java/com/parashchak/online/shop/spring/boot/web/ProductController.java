@@ -1,57 +1,237 @@
 package com.parashchak.online.shop.spring.boot.web;
 
-import com.parashchak.online.shop.spring.boot.service.ProductService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parashchak.online.shop.spring.boot.entity.BatchResult;
 import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductChanges;
+import com.parashchak.online.shop.spring.boot.entity.ProductFilter;
+import com.parashchak.online.shop.spring.boot.entity.ProductPage;
+import com.parashchak.online.shop.spring.boot.entity.WriteReceipt;
+import com.parashchak.online.shop.spring.boot.service.CatalogVersion;
+import com.parashchak.online.shop.spring.boot.service.ProductService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 @RestController
 @RequiredArgsConstructor
-@Slf4j
 public class ProductController {
 
     private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final ProductJsonCache productJsonCache;
 
     @GetMapping("/products")
-    public List<Product> findAll() {
-        List<Product> products = productService.findAll();
-        log.info("found products: {}", products);
-        return products;
+    public List<?> findAll(ProductFilter filter,
+                           @RequestParam(required = false) List<String> fields,
+                           WebRequest request) {
+        if (isCatalogNotModified(request)) {
+            return null;
+        }
+        if (fields != null) {
+            return withCatalogVersion(request, () -> productService.findFields(filter, fields));
+        }
+        return withCatalogVersion(request, () ->
+                filter.isEmpty() ? productService.findAll() : productService.findFiltered(filter));
     }
 
+    // a limit together with a filter, sort or fields is a filtered request, not a keyset page
+    @GetMapping(path = "/products",
+            params = {"limit", "!minPrice", "!maxPrice", "!createdFrom", "!createdTo", "!sort", "!fields"})
+    public ProductPage findPage(@RequestParam(required = false) String after,
+                                @RequestParam int limit,
+                                WebRequest request) {
+        if (isCatalogNotModified(request)) {
+            return null;
+        }
+        return withCatalogVersion(request, () -> productService.findPage(after, limit));
+    }
+
+    @GetMapping(path = "/products/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        try (JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            productService.export(product -> writeLine(generator, product));
+        }
+    }
+
+    /**
+     * 202 with the status of the write at the Location in write-behind mode.
+     */
     @PostMapping("/products")
-    public void add(@RequestBody Product product) {
+    public ResponseEntity<WriteReceipt> add(@RequestBody Product product) {
+        if (productService.isWriteBehind()) {
+            return accepted(productService.submitAdd(product));
+        }
         productService.add(product);
-        log.info("added product: {}", product);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * JSON of the product written from {@link ProductJsonCache}, without serializing it per request.
+     */
+    @GetMapping(path = "/product/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> findJsonById(@PathVariable int id, WebRequest request) {
+        Product product = productService.findById(id);
+        if (request.checkNotModified(strongETag(product), lastModified(product))) {
+            return null;
+        }
+        request.setAttribute(AccessLogInterceptor.RESULT_COUNT_ATTRIBUTE, 1, RequestAttributes.SCOPE_REQUEST);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(productJsonCache.json(product));
     }
 
+    // the binary formats
     @GetMapping(path = "/product/{id}")
-    public Product findById(@PathVariable int id) {
+    public Product findById(@PathVariable int id, WebRequest request) {
         Product product = productService.findById(id);
-        log.info("found by id={} product: {}", id, product);
+        if (request.checkNotModified(strongETag(product), lastModified(product))) {
+            return null;
+        }
         return product;
     }
 
     @GetMapping("/products/search/{text}")
-    public List<Product> searchByText(@PathVariable String text) {
-        List<Product> products = productService.search(text);
-        log.info("found products: {}", products);
-        return products;
+    public List<?> searchByText(@PathVariable String text,
+                                @RequestParam(required = false) List<String> fields,
+                                WebRequest request) {
+        if (isCatalogNotModified(request)) {
+            return null;
+        }
+        return withCatalogVersion(request, () ->
+                fields == null ? productService.search(text) : productService.searchFields(text, fields));
     }
 
     @DeleteMapping(path = "/product/{id}")
     public void deleteById(@PathVariable int id) {
         productService.deleteById(id);
-        log.info("deleted product by id={}", id);
     }
 
     @PutMapping("/product/{id}")
-    public void update(@PathVariable int id,
-                       @RequestBody Product product) {
+    public ResponseEntity<WriteReceipt> update(@PathVariable int id,
+                                               @RequestBody Product product,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                               String ifMatch) {
+        if (ifMatch != null && !"*".equals(ifMatch.trim())) {
+            product.setVersion(parseVersion(ifMatch));
+        }
+        if (productService.isWriteBehind()) {
+            return accepted(productService.submitUpdate(id, product));
+        }
         productService.update(id, product);
-        log.info("updated by id={} product: {}", id, product);
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/products/writes/{trackingId}")
+    public WriteReceipt findWrite(@PathVariable String trackingId) {
+        return productService.findWrite(trackingId);
+    }
+
+    /**
+     * The changes after the since sequence, for consumers syncing the catalog incrementally.
+     * With wait, a request finding no changes is held up to wait seconds for one.
+     */
+    @GetMapping("/products/changes")
+    public CompletableFuture<ProductChanges> findChanges(@RequestParam long since,
+                                                         @RequestParam(defaultValue = "100") int limit,
+                                                         @RequestParam(defaultValue = "0") int wait) {
+        return productService.awaitChanges(since, limit, Duration.ofSeconds(wait));
+    }
+
+    @PostMapping("/products/batch")
+    public List<BatchResult> addAll(@RequestBody List<Product> products) {
+        return productService.addAll(products);
+    }
+
+    @PutMapping("/products/batch")
+    public List<BatchResult> updateAll(@RequestBody List<Product> products) {
+        return productService.updateAll(products);
+    }
+
+    @DeleteMapping("/products/batch")
+    public List<BatchResult> deleteAllById(@RequestBody List<Integer> ids) {
+        return productService.deleteAllById(ids);
+    }
+
+    /**
+     * Weak validator of any view of the catalog, the change sequence every write raises.
+     * Checked before the view is read only when the client sends one.
+     */
+    private boolean isCatalogNotModified(WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) == null) {
+            return false;
+        }
+        Long catalogVersion = productService.findCatalogVersion();
+        return catalogVersion != null && request.checkNotModified(weakETag(catalogVersion));
+    }
+
+    /**
+     * The view, sent with the version read in its own transaction, or without a validator
+     * when it has none.
+     */
+    private <T> T withCatalogVersion(WebRequest request, Supplier<T> read) {
+        CatalogVersion.Versioned<T> versioned = CatalogVersion.track(read);
+        if (versioned.version() != null && request.checkNotModified(weakETag(versioned.version()))) {
+            return null;
+        }
+        return versioned.view();
+    }
+
+    private static String weakETag(long catalogVersion) {
+        return "W/\"" + catalogVersion + "\"";
+    }
+
+    private static ResponseEntity<WriteReceipt> accepted(WriteReceipt receipt) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/products/writes/" + receipt.getTrackingId()))
+                .body(receipt);
+    }
+
+    private static String strongETag(Product product) {
+        return product.getVersion() == null ? null : "\"" + product.getVersion() + "\"";
+    }
+
+    private static long lastModified(Product product) {
+        return product.getLastModified() == null ? -1 : product.getLastModified()
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static Long parseVersion(String ifMatch) {
+        String eTag = ifMatch.trim();
+        if (eTag.length() > 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+            try {
+                return Long.parseLong(eTag.substring(1, eTag.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // not an ETag of a product, can not match
+            }
+        }
+        throw new OptimisticLockingFailureException("If-Match " + ifMatch + " does not match the product");
+    }
+
+    private static void writeLine(JsonGenerator generator, Product product) {
+        try {
+            generator.writeObject(product);
+            generator.writeRaw('\n');
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.parashchak.online.shop.spring.boot.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+/**
+ * JSON of the products served by GET /product/{id}, serialized once per state of a product.
+ * The bytes are reused for the same instance, as the products cache returns it, and for an
+ * instance with the same fields, as the snapshot materializes it on every read.
+ */
+public class ProductJsonCache {
+
+    private final ObjectMapper objectMapper;
+    private final Cache<Integer, Entry> entries;
+
+    public ProductJsonCache(ObjectMapper objectMapper, String spec) {
+        this.objectMapper = objectMapper;
+        this.entries = Caffeine.from(spec).build();
+    }
+
+    /**
+     * UTF-8 JSON of the product, the same bytes the JSON message converter would write.
+     */
+    public byte[] json(Product product) {
+        Entry entry = entries.getIfPresent(product.getId());
+        if (entry != null && sameState(entry.product(), product)) {
+            return entry.json();
+        }
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(product);
+        } catch (JsonProcessingException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        entries.put(product.getId(), new Entry(product, json));
+        return json;
+    }
+
+    private static boolean sameState(Product cached, Product product) {
+        return cached == product
+                || Objects.equals(cached.getVersion(), product.getVersion())
+                && Objects.equals(cached.getLastModified(), product.getLastModified())
+                && Objects.equals(cached.getName(), product.getName())
+                && Double.compare(cached.getPrice(), product.getPrice()) == 0
+                && Objects.equals(cached.getCreationDate(), product.getCreationDate())
+                && Objects.equals(cached.getDescription(), product.getDescription());
+    }
+
+    private record Entry(Product product, byte[] json) {
+    }
+}
@@ -0,0 +1,38 @@
+package com.parashchak.online.shop.spring.boot.web;
+
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.service.ProductReactiveService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Streamed with Accept: application/x-ndjson or text/event-stream. Spring MVC, not WebFlux:
+ * the response is written with blocking servlet writes.
+ */
+@RestController
+@RequestMapping("/reactive")
+@RequiredArgsConstructor
+public class ProductReactiveController {
+
+    private final ProductReactiveService productReactiveService;
+
+    @GetMapping("/products")
+    public Flux<Product> findAll() {
+        return productReactiveService.findAll();
+    }
+
+    @GetMapping("/product/{id}")
+    public Mono<Product> findById(@PathVariable int id) {
+        return productReactiveService.findById(id);
+    }
+
+    @GetMapping("/products/search/{text}")
+    public Flux<Product> searchByText(@PathVariable String text) {
+        return productReactiveService.search(text);
+    }
+}
@@ -0,0 +1,69 @@
+package com.parashchak.online.shop.spring.boot.web;
+
+import com.parashchak.online.shop.spring.boot.config.DataSourceRouting;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+import java.time.Duration;
+
+/**
+ * Routes a client's reads to the primary for online-shop.datasource.read-your-writes-window
+ * after its last write, so it does not read from a replica that has not caught up yet.
+ * The time of the write is kept in a cookie, not on the server.
+ */
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+    static final String LAST_WRITE_COOKIE = "last-write";
+
+    private final Duration window;
+
+    public ReadYourWritesInterceptor(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        long now = System.currentTimeMillis();
+        if (isRead(request)) {
+            Cookie lastWrite = WebUtils.getCookie(request, LAST_WRITE_COOKIE);
+            if (lastWrite != null && now - parse(lastWrite.getValue()) < window.toMillis()) {
+                DataSourceRouting.requirePrimary();
+            }
+        } else {
+            Cookie lastWrite = new Cookie(LAST_WRITE_COOKIE, Long.toString(now));
+            lastWrite.setPath("/");
+            lastWrite.setHttpOnly(true);
+            lastWrite.setMaxAge((int) Math.max(1, window.toSeconds()));
+            response.addCookie(lastWrite);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        DataSourceRouting.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception exception) {
+        DataSourceRouting.clear();
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        return HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+    }
+
+    private static long parse(String lastWrite) {
+        try {
+            return Long.parseLong(lastWrite);
+        } catch (NumberFormatException exception) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.parashchak.online.shop.spring.boot.web;
+
+import com.parashchak.online.shop.spring.boot.config.SqlStatistics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the {@link SqlStatistics} of each request: records them in the product.request.sql
+ * metrics per endpoint, leaves them in a request attribute for the access log and tests, and
+ * warns when one SELECT was repeated online-shop.sql-log.repeated-select-threshold times.
+ * Statements run on other threads, like those of an export, are not counted.
+ */
+@Slf4j
+@Component
+public class SqlStatisticsInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String SQL_STATISTICS_ATTRIBUTE = SqlStatistics.class.getName();
+
+    private final MeterRegistry meterRegistry;
+    private final int repeatedSelectThreshold;
+
+    public SqlStatisticsInterceptor(MeterRegistry meterRegistry,
+                                    @Value("${online-shop.sql-log.repeated-select-threshold:10}") int repeatedSelectThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.repeatedSelectThreshold = repeatedSelectThreshold;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlStatistics.start();
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        SqlStatistics.stop();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception exception) {
+        SqlStatistics statistics = SqlStatistics.stop();
+        if (statistics == null) {
+            return;
+        }
+        request.setAttribute(SQL_STATISTICS_ATTRIBUTE, statistics);
+
+        String uri = Objects.toString(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE), "UNKNOWN");
+        DistributionSummary.builder("product.request.sql.statements")
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(meterRegistry)
+                .record(statistics.getStatements());
+        Timer.builder("product.request.sql.time")
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(meterRegistry)
+                .record(statistics.getTimeNanos(), TimeUnit.NANOSECONDS);
+
+        if (statistics.getRepeatedSelects() >= repeatedSelectThreshold) {
+            log.warn("{} {} ran the same SELECT {} times, likely an N+1 query: {}", request.getMethod(), uri,
+                    statistics.getRepeatedSelects(), statistics.getRepeatedSelect());
+        }
+    }
+}
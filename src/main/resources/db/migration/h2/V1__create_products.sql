@@ -0,0 +1,12 @@
+create sequence products_id_seq;
+
+create table products
+(
+    id            integer primary key,
+    name          varchar(255),
+    price         double precision not null,
+    creation_date timestamp(6),
+    description   varchar(255),
+    version       bigint,
+    last_modified timestamp(6)
+);
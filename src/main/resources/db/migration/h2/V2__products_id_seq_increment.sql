@@ -0,0 +1 @@
+alter sequence products_id_seq increment by 50;
@@ -0,0 +1,4 @@
+-- H2 has no trigram indexes, V3 only exists for PostgreSQL
+create index products_price_idx on products (price, id);
+create index products_creation_date_idx on products (creation_date, id);
+create index products_name_idx on products (name, id);
@@ -0,0 +1,5 @@
+create table write_behind_checkpoints
+(
+    journal          varchar(36) primary key,
+    flushed_sequence bigint not null
+);
@@ -0,0 +1,17 @@
+-- one row, locked by every transaction that records changes, so sequence numbers
+-- are handed out without gaps and in commit order
+create table product_change_sequence
+(
+    id            integer primary key,
+    last_sequence bigint not null
+);
+insert into product_change_sequence (id, last_sequence) values (1, 0);
+
+create table product_changes
+(
+    sequence_number bigint primary key,
+    product_id      integer     not null,
+    type            varchar(16) not null,
+    changed_at      timestamp(6) not null
+);
+create index product_changes_changed_at_idx on product_changes (changed_at);
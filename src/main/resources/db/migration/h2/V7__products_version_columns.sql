@@ -0,0 +1,2 @@
+alter table products add column if not exists version bigint not null default 0;
+alter table products add column if not exists last_modified timestamp(6);
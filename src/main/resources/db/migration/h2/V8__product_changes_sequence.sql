@@ -0,0 +1,17 @@
+-- change numbers come from a sequence, writes no longer queue on the row lock of
+-- product_change_sequence; a number taken by a transaction not committed yet shows as
+-- a gap, the feed reads no further until it is filled or given up
+create sequence product_changes_seq;
+alter sequence product_changes_seq restart with (select last_sequence + 1 from product_change_sequence);
+
+-- changes up to purged_sequence are deleted, a consumer behind it syncs from the catalog
+create table product_changes_purge
+(
+    id              integer primary key,
+    purged_sequence bigint not null
+);
+insert into product_changes_purge (id, purged_sequence)
+select 1, coalesce((select min(sequence_number) - 1 from product_changes), last_sequence)
+from product_change_sequence;
+
+drop table product_change_sequence;
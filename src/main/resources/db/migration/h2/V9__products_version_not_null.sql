@@ -0,0 +1,5 @@
+-- V1 created the version column as nullable and V7 left it so, a null version would break
+-- optimistic locking and the catalog version
+update products set version = 0 where version is null;
+alter table products alter column version set default 0;
+alter table products alter column version set not null;
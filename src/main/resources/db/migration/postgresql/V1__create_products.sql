@@ -0,0 +1,13 @@
+-- the schema that was created by hand before migrations, existing databases are baselined at this version
+create sequence if not exists products_id_seq;
+
+create table if not exists products
+(
+    id            integer primary key,
+    name          varchar(255),
+    price         double precision not null,
+    creation_date timestamp(6),
+    description   varchar(255),
+    version       bigint,
+    last_modified timestamp(6)
+);
@@ -0,0 +1,3 @@
+-- Hibernate's pooled optimizer takes a block of allocationSize ids per nextval,
+-- so the sequence has to step by the same 50
+alter sequence products_id_seq increment by 50;
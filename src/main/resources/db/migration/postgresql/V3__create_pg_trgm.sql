@@ -0,0 +1,2 @@
+-- needs a role allowed to create extensions, or the extension installed up front
+create extension if not exists pg_trgm;
@@ -0,0 +1,11 @@
+-- built concurrently, so writes to products are not blocked while the indexes are built;
+-- Flyway runs a script of concurrent index builds outside a transaction
+
+-- range filters and sorts of the catalog queries, id keeps the order stable
+create index concurrently if not exists products_price_idx on products (price, id);
+create index concurrently if not exists products_creation_date_idx on products (creation_date, id);
+create index concurrently if not exists products_name_idx on products (name, id);
+
+-- case-insensitive substring search, name ilike '%text%'
+create index concurrently if not exists products_name_trgm_idx on products using gin (name gin_trgm_ops);
+create index concurrently if not exists products_description_trgm_idx on products using gin (description gin_trgm_ops);
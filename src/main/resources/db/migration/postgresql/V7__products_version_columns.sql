@@ -0,0 +1,11 @@
+-- the optimistic locking and modification time columns, missing on databases baselined at V1;
+-- a null version would break optimistic locking and the catalog version
+alter table products
+    add column if not exists version bigint not null default 0,
+    add column if not exists last_modified timestamp(6);
+
+-- databases migrated from V1 before this script got the version column as nullable
+update products set version = 0 where version is null;
+alter table products
+    alter column version set default 0,
+    alter column version set not null;
@@ -2,13 +2,27 @@ package com.parashchak.online.shop.spring.boot;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.http.HttpStatus.OK;
 
+@AutoConfigureObservability
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 class OnlineShopAcceptanceTest {
 
@@ -22,4 +36,57 @@ class OnlineShopAcceptanceTest {
 		ResponseEntity<String> responseEntity = restTemplate.getForEntity(url, String.class);
 		assertEquals(OK, responseEntity.getStatusCode());
 	}
-}
\ No newline at end of file
+
+	@Test
+	void whenRequestForProductCacheMetrics_thenOkStatus() {
+		RestTemplate restTemplate = new RestTemplate();
+		String url = "http://localhost:" + randomServerPort + "/actuator/metrics/cache.gets?tag=cache:products";
+		ResponseEntity<String> responseEntity = restTemplate.getForEntity(url, String.class);
+		assertEquals(OK, responseEntity.getStatusCode());
+	}
+
+	@Test
+	void givenServedRequests_whenScrapePrometheusEndpoint_thenLayerMetricsExposed() {
+		RestTemplate restTemplate = new RestTemplate();
+		String baseUrl = "http://localhost:" + randomServerPort;
+		restTemplate.getForEntity(baseUrl + "/products", String.class);
+		assertThrows(HttpClientErrorException.NotFound.class,
+				() -> restTemplate.getForEntity(baseUrl + "/product/-1", String.class));
+
+		String metrics = restTemplate.getForObject(baseUrl + "/actuator/prometheus", String.class);
+
+		assertTrue(metrics.contains("http_server_requests_seconds_bucket{"));
+		assertTrue(metrics.contains("le=\"0.1\""));
+		assertFalse(metrics.contains("quantile="));
+		assertTrue(metrics.contains("product_service_seconds_count{"));
+		assertTrue(metrics.contains("product_repository_seconds_count{"));
+		assertTrue(metrics.contains("product_errors_total{exception=\"ProductNotFoundException\",status=\"404\""));
+		assertTrue(metrics.contains("hikaricp_connections_active"));
+		assertTrue(metrics.contains("cache_gets_total"));
+	}
+
+	@Test
+	void givenGzipAccepted_whenRequestForProducts_thenResponseCompressed() {
+		RestTemplate restTemplate = new RestTemplate();
+		String baseUrl = "http://localhost:" + randomServerPort;
+		List<Map<String, Object>> products = IntStream.range(0, 100)
+				.<Map<String, Object>>mapToObj(i -> Map.of("name", "product" + i, "price", i, "description", "description" + i))
+				.toList();
+		List<Map<String, Object>> results = restTemplate.exchange(baseUrl + "/products/batch", HttpMethod.POST,
+				new HttpEntity<>(products), new ParameterizedTypeReference<List<Map<String, Object>>>() {
+				}).getBody();
+
+		try {
+			HttpHeaders headers = new HttpHeaders();
+			headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+			ResponseEntity<byte[]> responseEntity = restTemplate.exchange(baseUrl + "/products", HttpMethod.GET,
+					new HttpEntity<>(headers), byte[].class);
+
+			assertEquals(OK, responseEntity.getStatusCode());
+			assertEquals("gzip", responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+		} finally {
+			List<Object> ids = results.stream().map(result -> result.get("id")).toList();
+			restTemplate.exchange(baseUrl + "/products/batch", HttpMethod.DELETE, new HttpEntity<>(ids), String.class);
+		}
+	}
+}
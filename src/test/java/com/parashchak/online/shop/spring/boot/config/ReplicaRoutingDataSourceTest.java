@@ -0,0 +1,124 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource firstReplica = mock(DataSource.class);
+    private final DataSource secondReplica = mock(DataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection firstReplicaConnection = mock(Connection.class);
+    private final Connection secondReplicaConnection = mock(Connection.class);
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setup() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(firstReplica.getConnection()).thenReturn(firstReplicaConnection);
+        when(secondReplica.getConnection()).thenReturn(secondReplicaConnection);
+        when(firstReplicaConnection.isValid(anyInt())).thenReturn(true);
+        routingDataSource = new ReplicaRoutingDataSource(primary, List.of(firstReplica, secondReplica));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        DataSourceRouting.clear();
+    }
+
+    @Test
+    void givenReadWriteTransaction_whenGetConnection_thenPrimaryConnectionReturned() throws SQLException {
+        assertSame(primaryConnection, routingDataSource.getConnection());
+    }
+
+    @Test
+    void givenReadOnlyTransaction_whenGetConnection_thenReplicasUsedInTurn() throws SQLException {
+
+        //prepare
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        //when
+        Connection first = routingDataSource.getConnection();
+        Connection second = routingDataSource.getConnection();
+        Connection third = routingDataSource.getConnection();
+
+        //then
+        assertSame(firstReplicaConnection, first);
+        assertSame(secondReplicaConnection, second);
+        assertSame(firstReplicaConnection, third);
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void givenPrimaryRequired_whenGetConnectionInReadOnlyTransaction_thenPrimaryConnectionReturned()
+            throws SQLException {
+
+        //prepare
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        //when
+        Connection connection = DataSourceRouting.onPrimary(() -> getConnection());
+
+        //then
+        assertSame(primaryConnection, connection);
+        assertFalse(DataSourceRouting.isPrimaryRequired());
+    }
+
+    @Test
+    void givenReplicaRefusingConnections_whenGetConnection_thenPrimaryUsedAndReplicaSkipped() throws SQLException {
+
+        //prepare
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(firstReplica.getConnection()).thenThrow(new SQLException("replica down"));
+
+        //when
+        Connection fallback = routingDataSource.getConnection();
+        Connection next = routingDataSource.getConnection();
+        Connection afterNext = routingDataSource.getConnection();
+
+        //then
+        assertSame(primaryConnection, fallback);
+        assertFalse(routingDataSource.isHealthy(0));
+        assertSame(secondReplicaConnection, next);
+        assertSame(secondReplicaConnection, afterNext);
+    }
+
+    @Test
+    void givenRecoveredReplica_whenReplicasChecked_thenReplicaUsedAgain() throws SQLException {
+
+        //prepare
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(firstReplica.getConnection())
+                .thenThrow(new SQLException("replica down"))
+                .thenReturn(firstReplicaConnection);
+        routingDataSource.getConnection();
+
+        //when
+        routingDataSource.checkReplicas();
+
+        //then
+        assertTrue(routingDataSource.isHealthy(0));
+        assertFalse(routingDataSource.isHealthy(1));
+    }
+
+    private Connection getConnection() {
+        try {
+            return routingDataSource.getConnection();
+        } catch (SQLException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
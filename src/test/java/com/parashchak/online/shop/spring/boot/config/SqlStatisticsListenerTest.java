@@ -0,0 +1,119 @@
+package com.parashchak.online.shop.spring.boot.config;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlStatisticsListenerTest {
+
+    private final Logger slowQueryLogger = (Logger) LoggerFactory.getLogger("slow-query");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void setup() throws SQLException {
+        appender.start();
+        slowQueryLogger.addAppender(appender);
+        try (Connection connection = h2().getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists items (id int primary key, name varchar(50))");
+            statement.execute("merge into items values (1, 'first'), (2, 'second')");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        slowQueryLogger.detachAppender(appender);
+        SqlStatistics.stop();
+    }
+
+    @Test
+    void givenStartedStatistics_whenStatementsRun_thenCountedPerType() throws SQLException {
+
+        //prepare
+        DataSource dataSource = proxy(Duration.ofMinutes(1));
+        SqlStatistics statistics = SqlStatistics.start();
+
+        //when
+        try (Connection connection = dataSource.getConnection()) {
+            select(connection, 1);
+            select(connection, 2);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("update items set name = 'updated' where id = 1");
+            }
+        }
+
+        //then
+        assertEquals(3, statistics.getStatements());
+        assertEquals(2, statistics.getSelects());
+        assertEquals(1, statistics.getUpdates());
+        assertEquals(2, statistics.getRepeatedSelects());
+        assertEquals("select name from items where id = ?", statistics.getRepeatedSelect());
+        assertTrue(statistics.getTimeNanos() > 0);
+    }
+
+    @Test
+    void givenNoStartedStatistics_whenStatementRuns_thenNothingCounted() throws SQLException {
+        try (Connection connection = proxy(Duration.ofMinutes(1)).getConnection()) {
+            select(connection, 1);
+        }
+
+        assertNull(SqlStatistics.current());
+    }
+
+    @Test
+    void givenStatementSlowerThanThreshold_whenRun_thenLoggedWithBindParameters() throws SQLException {
+
+        //when
+        try (Connection connection = proxy(Duration.ZERO).getConnection()) {
+            select(connection, 2);
+        }
+
+        //then
+        assertEquals(1, appender.list.size());
+        String message = appender.list.get(0).getFormattedMessage();
+        assertTrue(message.contains("select name from items where id = ?"));
+        assertTrue(message.contains("Params:[(2)]"));
+    }
+
+    @Test
+    void givenStatementFasterThanThreshold_whenRun_thenNothingLogged() throws SQLException {
+        try (Connection connection = proxy(Duration.ofMinutes(1)).getConnection()) {
+            select(connection, 2);
+        }
+
+        assertTrue(appender.list.isEmpty());
+    }
+
+    private static void select(Connection connection, int id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("select name from items where id = ?")) {
+            statement.setInt(1, id);
+            statement.executeQuery().close();
+        }
+    }
+
+    private static DataSource proxy(Duration slowQueryThreshold) {
+        return ProxyDataSourceBuilder.create(h2())
+                .listener(new SqlStatisticsListener(slowQueryThreshold))
+                .buildProxy();
+    }
+
+    private static DataSource h2() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:sql-statistics;DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+}
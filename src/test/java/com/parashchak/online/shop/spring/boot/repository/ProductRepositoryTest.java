@@ -4,13 +4,22 @@ import com.github.database.rider.core.api.dataset.DataSet;
 import com.github.database.rider.core.api.dataset.ExpectedDataSet;
 import com.github.database.rider.spring.api.DBRider;
 import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductFilter;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -18,9 +27,14 @@ import static org.junit.jupiter.api.Assertions.*;
 @SpringBootTest
 class ProductRepositoryTest {
 
+    private static final int LARGE_DATASET_SIZE = 10_000;
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     @DataSet("products.yml")
     void givenListOfProducts_whenFindAll_thenActualProductsReturned() {
@@ -49,36 +63,6 @@ class ProductRepositoryTest {
         assertTrue(actualProducts.isEmpty());
     }
 
-    @Test
-    @DataSet("products.yml")
-    void givenListOfProductsToBeFound_whenSearch_thenActualProductsToBeFoundReturned() {
-
-        List<Product> products = productRepository
-                .findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
-                "product", "product");
-        assertEquals(3, products.size());
-    }
-
-    @Test
-    @DataSet("products.yml")
-    void givenSingleProductToBeFound_whenSearch_thenActualSingleProductReturned() {
-
-        List<Product> products = productRepository
-                .findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
-                        "secondProduct", "secondProduct");
-        assertEquals(1, products.size());
-    }
-
-    @Test
-    @DataSet("products.yml")
-    void givenListOfProducts_whenSearchTextDoesNotMatch_thenEmptyListReturned() {
-
-        List<Product> products = productRepository
-                .findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
-                        "textWhichDoesNotMatch", "textWhichDoesNotMatch");
-        assertTrue(products.isEmpty());
-    }
-
     @Test
     @DataSet("products.yml")
     @ExpectedDataSet("single_product.yml")
@@ -134,8 +118,138 @@ class ProductRepositoryTest {
     @Test
     @DataSet("products.yml")
     @ExpectedDataSet("products.yml")
-    void givenNonExistingId_whenDeleteById_thenExceptionThrown() {
+    void givenNonExistingId_whenDeleteById_thenNothingDeleted() {
         assertFalse(productRepository.existsById(5));
-        assertThrows(Exception.class, () -> productRepository.deleteById(5));
+        productRepository.deleteById(5);
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenListOfProducts_whenFindByIdGreaterThan_thenProductsAfterIdReturnedInIdOrder() {
+
+        List<Product> products = productRepository
+                .findByIdGreaterThanOrderByIdAsc(1, PageRequest.ofSize(10));
+
+        assertEquals(2, products.size());
+        assertEquals(2, products.get(0).getId());
+        assertEquals(3, products.get(1).getId());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenLargeDataset_whenPageThroughByKeyset_thenEveryProductVisitedOnceInIdOrder() {
+
+        //prepare
+        productRepository.deleteAllInBatch();
+        Timestamp creationDate = Timestamp.valueOf(LocalDateTime.of(2000, 1, 1, 0, 0));
+        jdbcTemplate.batchUpdate(
+                "insert into products (id, name, price, creation_date, description, version) values (?, ?, ?, ?, ?, 0)",
+                IntStream.rangeClosed(1, LARGE_DATASET_SIZE)
+                        .mapToObj(id -> new Object[]{id, "product" + id, id, creationDate, "description" + id})
+                        .toList());
+
+        //when
+        int pageSize = 512;
+        int lastId = 0;
+        int visited = 0;
+        List<Product> page;
+        do {
+            page = productRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.ofSize(pageSize));
+            for (Product product : page) {
+                assertEquals(lastId + 1, product.getId());
+                lastId = product.getId();
+                visited++;
+            }
+        } while (page.size() == pageSize);
+
+        //then
+        assertEquals(LARGE_DATASET_SIZE, visited);
+    }
+
+    @Test
+    @Transactional
+    @DataSet("products.yml")
+    void givenListOfProducts_whenStreamAll_thenProductsStreamedInIdOrder() {
+        try (Stream<Product> products = productRepository.streamAllByOrderByIdAsc()) {
+            assertEquals(List.of(1, 2, 3), products.map(Product::getId).toList());
+        }
+    }
+
+    @Test
+    @DataSet("products.yml")
+    @ExpectedDataSet("products_after_delete.yml")
+    void whenDeleteProductById_thenProductDeletedAndOneRowAffected() {
+        assertEquals(1, productRepository.deleteProductById(2));
+    }
+
+    @Test
+    @DataSet("products.yml")
+    @ExpectedDataSet("products.yml")
+    void givenNonExistingId_whenDeleteProductById_thenNoRowAffected() {
+        assertEquals(0, productRepository.deleteProductById(5));
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenPriceRange_whenFindAllBySpecification_thenPriceIndexRangeScannedInSortOrder() {
+
+        //prepare
+        ProductFilter filter = ProductFilter.builder().minPrice(100.0).maxPrice(200.0).build();
+
+        //when
+        List<Product> products = productRepository.findAll(ProductSpecifications.matching(filter), Sort.by("price", "id"));
+        String plan = explainLastStatement(100.0, 200.0);
+
+        //then
+        assertEquals(List.of(1, 2), products.stream().map(Product::getId).toList());
+        assertTrue(plan.contains("PUBLIC.PRODUCTS_PRICE_IDX: PRICE >= ?1"), plan);
+        assertTrue(plan.contains("index sorted"), plan);
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenCreationWindow_whenFindAllBySpecification_thenCreationDateIndexRangeScanned() {
+
+        //prepare
+        LocalDateTime from = LocalDateTime.of(1500, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2500, 1, 1, 0, 0);
+        ProductFilter filter = ProductFilter.builder().createdFrom(from).createdTo(to).build();
+
+        //when
+        List<Product> products = productRepository.findAll(ProductSpecifications.matching(filter));
+        String plan = explainLastStatement(Timestamp.valueOf(from), Timestamp.valueOf(to));
+
+        //then
+        assertEquals(List.of(2), products.stream().map(Product::getId).toList());
+        assertTrue(plan.contains("PUBLIC.PRODUCTS_CREATION_DATE_IDX: CREATION_DATE >= ?1"), plan);
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenFields_whenFindFields_thenOnlyThoseColumnsSelected() {
+
+        //when
+        List<Map<String, Object>> products = productRepository.findFields(
+                List.of("id", "name"), ProductSpecifications.idIn(List.of(1, 2)), Sort.by("id"), 0);
+
+        //then
+        assertEquals(List.of(Map.of("id", 1, "name", "firstProduct"), Map.of("id", 2, "name", "secondProduct")),
+                products);
+        String sql = SqlStatementRecorder.lastStatement();
+        assertFalse(sql.contains("description"), sql);
+        assertFalse(sql.contains("price"), sql);
+    }
+
+    @Test
+    void whenMigrated_thenIdSequenceStepsByAllocationSize() {
+        Long increment = jdbcTemplate.queryForObject(
+                "select increment from information_schema.sequences where sequence_name = 'PRODUCTS_ID_SEQ'",
+                Long.class);
+
+        assertEquals(50, increment);
+    }
+
+    private String explainLastStatement(Object... parameters) {
+        return jdbcTemplate.queryForObject("explain " + SqlStatementRecorder.lastStatement(), String.class, parameters);
     }
-}
\ No newline at end of file
+}
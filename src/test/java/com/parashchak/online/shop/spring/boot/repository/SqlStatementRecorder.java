@@ -0,0 +1,22 @@
+package com.parashchak.online.shop.spring.boot.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Keeps the last SQL statement Hibernate prepared on the current thread, so tests can
+ * explain the query that was actually run.
+ */
+public class SqlStatementRecorder implements StatementInspector {
+
+    private static final ThreadLocal<String> LAST_STATEMENT = new ThreadLocal<>();
+
+    static String lastStatement() {
+        return LAST_STATEMENT.get();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        LAST_STATEMENT.set(sql);
+        return sql;
+    }
+}
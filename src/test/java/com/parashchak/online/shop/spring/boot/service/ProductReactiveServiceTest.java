@@ -0,0 +1,103 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+
+import java.util.List;
+
+import static com.parashchak.online.shop.spring.boot.config.CacheConfig.PRODUCTS_CACHE;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DBRider
+@SpringBootTest
+class ProductReactiveServiceTest {
+
+    @Autowired
+    private ProductReactiveService productReactiveService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @BeforeEach
+    void setup() {
+        cacheManager.getCache(PRODUCTS_CACHE).clear();
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenListOfProducts_whenFindAll_thenProductsStreamedInIdOrder() {
+
+        //when
+        List<Product> actualProducts = productReactiveService.findAll().collectList().block();
+
+        //then
+        assertEquals(List.of(1, 2, 3), actualProducts.stream().map(Product::getId).toList());
+        assertEquals("secondProduct", actualProducts.get(1).getName());
+        assertEquals(200, actualProducts.get(1).getPrice());
+        assertEquals("secondProductDescription", actualProducts.get(1).getDescription());
+        assertEquals(2000, actualProducts.get(1).getCreationDate().getYear());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void whenFindById_thenProductLoadedAndNotCached() {
+
+        //when
+        Product actualProduct = productReactiveService.findById(2).block();
+
+        //then
+        assertEquals("secondProduct", actualProduct.getName());
+        assertNull(cacheManager.getCache(PRODUCTS_CACHE).get(2));
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenCachedProduct_whenFindById_thenCachedProductReturned() {
+
+        //prepare
+        Product cachedProduct = Product.builder().id(2).name("cachedProduct").build();
+        cacheManager.getCache(PRODUCTS_CACHE).put(2, cachedProduct);
+
+        //when
+        Product actualProduct = productReactiveService.findById(2).block();
+
+        //then
+        assertSame(cachedProduct, actualProduct);
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenNonExistingId_whenFindById_thenErrorSignalled() {
+
+        //when
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> productReactiveService.findById(5).block());
+
+        //then
+        assertEquals("product with id=5 not found", exception.getMessage());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenIndexedProducts_whenSearch_thenProductsStreamedInRelevanceOrder() {
+
+        //prepare
+        productSearchIndex.clear();
+        productReactiveService.findAll().toIterable().forEach(productSearchIndex::put);
+
+        //when
+        List<Product> actualProducts = productReactiveService.search("third").collectList().block();
+
+        //then
+        assertEquals(List.of(3), actualProducts.stream().map(Product::getId).toList());
+    }
+}
@@ -0,0 +1,84 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex productSearchIndex;
+
+    @BeforeEach
+    void setup() {
+        productSearchIndex = new ProductSearchIndex(2);
+        productSearchIndex.put(product(1, "Red apple", "fresh fruit from the garden"));
+        productSearchIndex.put(product(2, "Pineapple", "tropical fruit"));
+        productSearchIndex.put(product(3, "Apple juice", "made of green apples"));
+        productSearchIndex.put(product(4, "Garden chair", "wooden"));
+    }
+
+    @Test
+    void whenSearchSubstring_thenProductsContainingItReturned() {
+        assertEquals(List.of(2), productSearchIndex.search("neap"));
+    }
+
+    @Test
+    void whenSearchInDifferentCase_thenMatchIgnoresCase() {
+        assertEquals(List.of(4, 1), productSearchIndex.search("GARDEN"));
+    }
+
+    @Test
+    void whenSearchTextAcrossWords_thenSubstringSemanticsKept() {
+        assertEquals(List.of(1), productSearchIndex.search("d app"));
+    }
+
+    @Test
+    void whenSearchTextShorterThanGram_thenStoredTextsMatched() {
+        assertEquals(List.of(4, 1), productSearchIndex.search("en"));
+    }
+
+    @Test
+    void whenSearch_thenResultsOrderedByRelevanceAndLimitApplied() {
+        assertEquals(List.of(3, 1), productSearchIndex.search("apple"));
+    }
+
+    @Test
+    void whenSearchTextDoesNotMatch_thenEmptyListReturned() {
+        assertTrue(productSearchIndex.search("banana").isEmpty());
+        assertTrue(productSearchIndex.search("").isEmpty());
+    }
+
+    @Test
+    void givenUpdatedProduct_whenSearchOldText_thenProductNotReturned() {
+
+        //when
+        productSearchIndex.put(product(2, "Mango", "tropical fruit"));
+
+        //then
+        assertTrue(productSearchIndex.search("pineapple").isEmpty());
+        assertEquals(List.of(2), productSearchIndex.search("mango"));
+    }
+
+    @Test
+    void givenRemovedProduct_whenSearch_thenProductNotReturned() {
+
+        //when
+        productSearchIndex.remove(4);
+
+        //then
+        assertEquals(List.of(1), productSearchIndex.search("garden"));
+        assertEquals(3, productSearchIndex.size());
+    }
+
+    private static Product product(int id, String name, String description) {
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .description(description)
+                .build();
+    }
+}
@@ -0,0 +1,93 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DBRider
+@SpringBootTest
+class ProductSearchIndexUpdaterTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductSearchIndexUpdater productSearchIndexUpdater;
+
+    @Autowired
+    private ProductChangeFeed productChangeFeed;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        // changes are numbered from 1 again, the feed waits for a missing number after the purged ones
+        jdbcTemplate.execute("alter sequence product_changes_seq restart with 1");
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenWritesOfAnotherNode_whenChangesPublished_thenIndexUpdatedInBackground() throws InterruptedException {
+
+        //prepare
+        productSearchIndexUpdater.rebuild();
+
+        //when
+        // written around the service, like a write of another node
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("update products set name = 'renamedProduct' where id = 3");
+            jdbcTemplate.update("delete from products where id = 1");
+            productChangeFeed.record(ProductChange.Type.UPDATED, List.of(3));
+            productChangeFeed.record(ProductChange.Type.DELETED, List.of(1));
+        });
+
+        //then
+        awaitSearch(() -> productSearchIndex.search("renamed"), List.of(3));
+        awaitSearch(() -> productSearchIndex.search("firstProduct"), List.of());
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenRolledBackUpdate_whenSearch_thenIndexUnchanged() {
+
+        //prepare
+        productSearchIndexUpdater.rebuild();
+
+        //when
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            productService.update(2, Product.builder().name("renamedProduct").price(200).build());
+            throw new IllegalStateException("rolled back");
+        }));
+
+        //then
+        assertEquals(List.of(), productSearchIndex.search("renamed"));
+        assertEquals(List.of(2), productSearchIndex.search("secondProduct"));
+    }
+
+    private static void awaitSearch(Supplier<List<Integer>> search, List<Integer> expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!search.get().equals(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, search.get());
+    }
+}
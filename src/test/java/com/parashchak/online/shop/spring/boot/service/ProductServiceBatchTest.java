@@ -0,0 +1,114 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import com.parashchak.online.shop.spring.boot.config.SqlStatistics;
+import com.parashchak.online.shop.spring.boot.entity.BatchResult;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DBRider
+@SpringBootTest
+class ProductServiceBatchTest {
+
+    private static final int PRODUCT_COUNT = 4 * ProductServiceImpl.BATCH_SIZE;
+
+    // longer than the name column
+    private static final String TOO_LONG_NAME = "x".repeat(256);
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    @DataSet("products.yml")
+    void whenAddAll_thenProductsAndChangesInsertedWithOneStatementEachPerChunk() {
+
+        //prepare
+        productRepository.deleteAllInBatch();
+        List<Product> products = IntStream.range(0, PRODUCT_COUNT)
+                .mapToObj(i -> Product.builder().name("product" + i).price(i).build())
+                .toList();
+
+        //when
+        // counts the statements of this thread only, not the ones of the search index updater
+        SqlStatistics.start();
+        List<BatchResult> results = productService.addAll(products);
+        long statements = SqlStatistics.stop().getStatements();
+
+        //then
+        assertTrue(results.stream().allMatch(result -> result.getStatus() == HttpStatus.OK));
+        assertEquals(PRODUCT_COUNT, productRepository.count());
+        long chunks = PRODUCT_COUNT / ProductServiceImpl.BATCH_SIZE;
+        // per chunk one insert of the products and one of their changes, update and read of the change
+        // sequence, plus at most one id sequence call per chunk and one for the initial pool
+        assertTrue(statements <= 5 * chunks + 2, "statements: " + statements);
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void whenDeleteAllById_thenExistingProductsDeleted() {
+
+        //when
+        List<BatchResult> results = productService.deleteAllById(List.of(1, 3, 5));
+
+        //then
+        assertEquals(List.of(HttpStatus.OK, HttpStatus.OK, HttpStatus.NOT_FOUND),
+                results.stream().map(BatchResult::getStatus).toList());
+        assertEquals(List.of(2), productRepository.findAll().stream().map(Product::getId).toList());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenOneInvalidProduct_whenAddAll_thenOnlyItFailed() {
+
+        //prepare
+        List<Product> products = List.of(
+                Product.builder().name("firstAdded").price(1).build(),
+                Product.builder().name(TOO_LONG_NAME).price(2).build(),
+                Product.builder().name("thirdAdded").price(3).build());
+
+        //when
+        List<BatchResult> results = productService.addAll(products);
+
+        //then
+        assertEquals(List.of(HttpStatus.OK, HttpStatus.INTERNAL_SERVER_ERROR, HttpStatus.OK),
+                results.stream().map(BatchResult::getStatus).toList());
+        assertNull(results.get(1).getId());
+        assertEquals(List.of(0, 1, 2), results.stream().map(BatchResult::getIndex).toList());
+        assertEquals("firstAdded", productRepository.findById(results.get(0).getId()).orElseThrow().getName());
+        assertEquals("thirdAdded", productRepository.findById(results.get(2).getId()).orElseThrow().getName());
+        assertEquals(5, productRepository.count());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenOneInvalidProduct_whenUpdateAll_thenOnlyItFailed() {
+
+        //prepare
+        List<Product> products = List.of(
+                Product.builder().id(1).name("firstUpdated").price(1).build(),
+                Product.builder().id(2).name(TOO_LONG_NAME).price(2).build(),
+                Product.builder().id(3).name("thirdUpdated").price(3).build());
+
+        //when
+        List<BatchResult> results = productService.updateAll(products);
+
+        //then
+        assertEquals(List.of(HttpStatus.OK, HttpStatus.INTERNAL_SERVER_ERROR, HttpStatus.OK),
+                results.stream().map(BatchResult::getStatus).toList());
+        assertEquals(List.of("firstUpdated", "secondProduct", "thirdUpdated"),
+                productRepository.findAll().stream().map(Product::getName).toList());
+    }
+}
@@ -0,0 +1,73 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import com.parashchak.online.shop.spring.boot.config.SqlStatistics;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+
+import static com.parashchak.online.shop.spring.boot.config.CacheConfig.PRODUCTS_CACHE;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DBRider
+@SpringBootTest
+class ProductServiceCacheTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setup() {
+        cacheManager.getCache(PRODUCTS_CACHE).clear();
+        // counts the statements of this thread only, not the ones of the search index updater
+        SqlStatistics.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SqlStatistics.stop();
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenCachedProduct_whenFindById_thenNoSqlStatementExecuted() {
+
+        //prepare
+        productService.findById(2);
+        assertEquals(1, SqlStatistics.current().getStatements());
+
+        //when
+        String name = productService.findById(2).getName();
+
+        //then
+        assertEquals("secondProduct", name);
+        assertEquals(1, SqlStatistics.current().getStatements());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenCachedProduct_whenUpdate_thenUpdatedProductReturnedByNextFindById() {
+
+        //prepare
+        productService.findById(2);
+        Product product = Product.builder()
+                .name("updatedProduct")
+                .price(250)
+                .description("updatedProductDescription")
+                .build();
+
+        //when
+        productService.update(2, product);
+
+        //then
+        assertEquals("updatedProduct", productService.findById(2).getName());
+    }
+}
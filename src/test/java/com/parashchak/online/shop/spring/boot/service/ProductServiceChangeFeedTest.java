@@ -0,0 +1,232 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductChange;
+import com.parashchak.online.shop.spring.boot.entity.ProductChanges;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DBRider
+@SpringBootTest
+class ProductServiceChangeFeedTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductChangeFeed productChangeFeed;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        // ids of added products stay clear of the ones of the dataset
+        jdbcTemplate.execute("alter sequence products_id_seq restart with 1000");
+        // changes are numbered from 1 again, the feed waits for a missing number after the purged ones
+        jdbcTemplate.execute("alter sequence product_changes_seq restart with 1");
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenAddUpdateAndDelete_whenFindChanges_thenChangesInCommitOrderWithCurrentProducts() {
+
+        //prepare
+        Product added = product("addedProduct", 400);
+        productService.add(added);
+        productService.update(1, product("updatedProduct", 150));
+        productService.deleteById(2);
+
+        //when
+        ProductChanges changes = productService.findChanges(0, 100);
+
+        //then
+        assertEquals(List.of(1L, 2L, 3L), changes.getChanges().stream().map(ProductChange::getSequence).toList());
+        assertEquals(List.of(ProductChange.Type.CREATED, ProductChange.Type.UPDATED, ProductChange.Type.DELETED),
+                changes.getChanges().stream().map(ProductChange::getType).toList());
+        assertEquals(List.of(added.getId(), 1, 2),
+                changes.getChanges().stream().map(ProductChange::getProductId).toList());
+        assertEquals("addedProduct", changes.getChanges().get(0).getProduct().getName());
+        assertEquals("updatedProduct", changes.getChanges().get(1).getProduct().getName());
+        assertNull(changes.getChanges().get(2).getProduct());
+        assertEquals(3, changes.getLast());
+
+        ProductChanges delta = productService.findChanges(2, 100);
+        assertEquals(List.of(3L), delta.getChanges().stream().map(ProductChange::getSequence).toList());
+        assertEquals(List.of(), productService.findChanges(3, 100).getChanges());
+        assertEquals(3, productService.findChanges(3, 100).getLast());
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenUnchangedOrRejectedUpdate_whenFindChanges_thenNoChangeRecorded() {
+
+        //prepare
+        productService.update(2, product("secondProduct", 200, "secondProductDescription"));
+        Product stale = product("staleProduct", 250);
+        stale.setVersion(5L);
+        assertThrows(OptimisticLockingFailureException.class, () -> productService.update(2, stale));
+
+        //when
+        productService.update(3, product("updatedProduct", 350));
+
+        //then
+        ProductChanges changes = productService.findChanges(0, 100);
+        assertEquals(List.of(1L), changes.getChanges().stream().map(ProductChange::getSequence).toList());
+        assertEquals(3, changes.getChanges().get(0).getProductId());
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenBatchUpdate_whenFindChanges_thenOneChangePerUpdatedProduct() {
+
+        //prepare
+        Product first = product("firstUpdate", 110);
+        first.setId(1);
+        Product second = product("secondUpdate", 210);
+        second.setId(2);
+        Product missing = product("missing", 510);
+        missing.setId(5);
+
+        //when
+        productService.updateAll(List.of(first, second, missing));
+
+        //then
+        ProductChanges changes = productService.findChanges(0, 1);
+        assertEquals(1, changes.getChanges().size());
+        assertEquals(1, changes.getLast());
+        assertEquals(List.of(1, 2), productService.findChanges(0, 100).getChanges().stream()
+                .map(ProductChange::getProductId).toList());
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenWaitingConsumer_whenProductUpdated_thenChangesReturnedBeforeWaitEnds() throws Exception {
+
+        //prepare
+        CompletableFuture<ProductChanges> changes = productService.awaitChanges(0, 100, Duration.ofSeconds(20));
+        assertFalse(changes.isDone());
+
+        //when
+        productService.update(1, product("updatedProduct", 150));
+
+        //then
+        ProductChanges found = changes.get(10, TimeUnit.SECONDS);
+        assertEquals(List.of(1), found.getChanges().stream().map(ProductChange::getProductId).toList());
+        assertEquals(1, found.getLast());
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenNoChanges_whenWaitEnds_thenNoChangesReturned() throws Exception {
+
+        //when
+        ProductChanges changes = productService.awaitChanges(0, 100, Duration.ofMillis(200)).get(10, TimeUnit.SECONDS);
+
+        //then
+        assertEquals(List.of(), changes.getChanges());
+        assertEquals(0, changes.getLast());
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.awaitChanges(0, 100, Duration.ofMinutes(5)));
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenNumberOfOpenTransaction_whenFindChanges_thenChangesAfterItHeldBack() {
+
+        //prepare
+        productService.update(1, product("updatedProduct", 150));
+        jdbcTemplate.queryForObject("select nextval('product_changes_seq')", Long.class);
+        productService.update(2, product("updatedProduct", 250));
+
+        //when
+        ProductChanges changes = productService.findChanges(0, 100);
+
+        //then
+        assertEquals(List.of(1L), changes.getChanges().stream().map(ProductChange::getSequence).toList());
+        assertEquals(1, changes.getLast());
+        assertEquals(1, productChangeFeed.findLastSequence());
+        assertNull(productService.findCatalogVersion());
+
+        jdbcTemplate.update("""
+                insert into product_changes (sequence_number, product_id, type, changed_at)
+                values (2, 3, 'UPDATED', ?)""", LocalDateTime.now());
+        assertEquals(List.of(1L, 2L, 3L), productService.findChanges(0, 100).getChanges().stream()
+                .map(ProductChange::getSequence).toList());
+        assertEquals(3, productService.findCatalogVersion());
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenNumberNotCommittedWithinCommitTimeout_whenFindChanges_thenNumberSkipped() {
+
+        //prepare
+        productService.update(1, product("updatedProduct", 150));
+        jdbcTemplate.queryForObject("select nextval('product_changes_seq')", Long.class);
+        productService.update(2, product("updatedProduct", 250));
+        jdbcTemplate.update("update product_changes set changed_at = ?", LocalDateTime.now().minusMinutes(1));
+
+        //when
+        ProductChanges changes = productService.findChanges(0, 100);
+
+        //then
+        assertEquals(List.of(1L, 3L), changes.getChanges().stream().map(ProductChange::getSequence).toList());
+        assertEquals(3, changes.getLast());
+        assertEquals(3, productChangeFeed.findLastSequence());
+        assertEquals(3, productService.findCatalogVersion());
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenPurgedChanges_whenFindChangesBeforeThem_thenConsumerToldToSync() {
+
+        //prepare
+        productService.update(1, product("updatedProduct", 150));
+        productService.update(2, product("updatedProduct", 250));
+        productService.update(3, product("updatedProduct", 350));
+        jdbcTemplate.update("update product_changes set changed_at = ? where sequence_number < 3",
+                LocalDateTime.now().minusDays(30));
+
+        //when
+        productChangeFeed.purge();
+
+        //then
+        assertThrows(IllegalArgumentException.class, () -> productService.findChanges(0, 100));
+        assertThrows(IllegalArgumentException.class, () -> productService.findChanges(1, 100));
+        assertEquals(List.of(3L), productService.findChanges(2, 100).getChanges().stream()
+                .map(ProductChange::getSequence).toList());
+
+        // the last change is kept, it is the version of the catalog
+        jdbcTemplate.update("update product_changes set changed_at = ?", LocalDateTime.now().minusDays(30));
+        productChangeFeed.purge();
+        assertEquals(List.of(3L), productService.findChanges(2, 100).getChanges().stream()
+                .map(ProductChange::getSequence).toList());
+        assertEquals(3, productService.findCatalogVersion());
+    }
+
+    private static Product product(String name, double price) {
+        return product(name, price, name + "Description");
+    }
+
+    private static Product product(String name, double price, String description) {
+        return Product.builder()
+                .name(name)
+                .price(price)
+                .description(description)
+                .build();
+    }
+}
@@ -0,0 +1,195 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import com.parashchak.online.shop.spring.boot.OnlineShopSpringBootApplication;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.hazelcast.core.HazelcastInstance;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.parashchak.online.shop.spring.boot.config.CacheConfig.PRODUCTS_CACHE;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test context and a second application context started by the test form a cluster of
+ * two nodes over the same in-memory database.
+ */
+@DBRider
+@SpringBootTest(properties = {
+        ProductServiceClusterCacheTest.CLUSTER_NAME,
+        ProductServiceClusterCacheTest.CLUSTER_PORT,
+        ProductServiceClusterCacheTest.CLUSTER_MEMBERS,
+        ProductServiceClusterCacheTest.SECOND_LEVEL_CACHE,
+        ProductServiceClusterCacheTest.QUERY_CACHE
+})
+class ProductServiceClusterCacheTest {
+
+    static final String CLUSTER_NAME = "online-shop.cache.cluster.name=online-shop-cluster-test";
+    static final String CLUSTER_PORT = "online-shop.cache.cluster.port=5901";
+    static final String CLUSTER_MEMBERS = "online-shop.cache.cluster.members=127.0.0.1:5901,127.0.0.1:5902";
+    static final String SECOND_LEVEL_CACHE = "spring.jpa.properties.hibernate.cache.use_second_level_cache=true";
+    static final String QUERY_CACHE = "spring.jpa.properties.hibernate.cache.use_query_cache=true";
+
+    private static ConfigurableApplicationContext otherNode;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    private ProductService otherProductService;
+    private Statistics statistics;
+    private Statistics otherStatistics;
+
+    @BeforeEach
+    void setup() {
+        if (otherNode == null) {
+            otherNode = new SpringApplicationBuilder(OnlineShopSpringBootApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .run(Stream.of(CLUSTER_NAME, CLUSTER_PORT, CLUSTER_MEMBERS, SECOND_LEVEL_CACHE, QUERY_CACHE)
+                            .map(property -> "--" + property)
+                            .toArray(String[]::new));
+        }
+        otherProductService = otherNode.getBean(ProductService.class);
+
+        for (ProductSearchIndex index : List.of(productSearchIndex, otherNode.getBean(ProductSearchIndex.class))) {
+            index.clear();
+            productService.findAll().forEach(index::put);
+        }
+        // the dataset is written around Hibernate
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        cacheManager.getCache(PRODUCTS_CACHE).clear();
+        otherNode.getBean(CacheManager.class).getCache(PRODUCTS_CACHE).clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        otherStatistics = otherNode.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        otherStatistics.clear();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (otherNode != null) {
+            otherNode.close();
+        }
+    }
+
+    @Test
+    void whenBothNodesStarted_thenTheyFormOneCluster() {
+        assertEquals(2, hazelcastInstance.getCluster().getMembers().size());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenProductLoadedByOneNode_whenFindByIdOnOtherNode_thenNoSqlStatementExecuted() {
+
+        //prepare
+        productService.findById(2);
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        //when
+        Product product = otherProductService.findById(2);
+
+        //then
+        assertEquals("secondProduct", product.getName());
+        assertEquals(0, otherStatistics.getPrepareStatementCount());
+        assertEquals(1, otherStatistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenProductCachedByOneNode_whenUpdatedOnOtherNode_thenNextFindByIdReturnsUpdatedProduct()
+            throws InterruptedException {
+
+        //prepare
+        productService.findById(2);
+        otherProductService.findById(2);
+        Product product = Product.builder()
+                .name("updatedProduct")
+                .price(250)
+                .description("updatedProductDescription")
+                .build();
+
+        //when
+        otherProductService.update(2, product);
+
+        //then
+        awaitEvicted(2);
+        assertEquals("updatedProduct", productService.findById(2).getName());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenSearchRunByOneNode_whenSameSearchOnOtherNode_thenNoSqlStatementExecuted() {
+
+        //prepare
+        productService.search("second");
+
+        //when
+        List<Product> products = otherProductService.search("second");
+
+        //then
+        assertEquals(List.of(2), products.stream().map(Product::getId).toList());
+        assertEquals(0, otherStatistics.getPrepareStatementCount());
+        assertEquals(1, otherStatistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenSearchCachedByOneNode_whenProductDeletedOnOtherNode_thenNextSearchOmitsItAndIndexDropsIt()
+            throws InterruptedException {
+
+        //prepare
+        assertEquals(3, productService.search("Product").size());
+
+        //when
+        otherProductService.deleteById(3);
+
+        //then
+        List<Product> products = productService.search("Product");
+        assertEquals(List.of(1, 2), products.stream().map(Product::getId).toList());
+        awaitNotIndexed(3);
+    }
+
+    private void awaitNotIndexed(int id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (productSearchIndex.search("Product").contains(id)) {
+            assertTrue(System.nanoTime() < deadline, "removal of " + id + " from the index did not arrive");
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitEvicted(int id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (cacheManager.getCache(PRODUCTS_CACHE).get(id) != null) {
+            assertTrue(System.nanoTime() < deadline, "eviction of " + id + " did not arrive");
+            Thread.sleep(10);
+        }
+    }
+}
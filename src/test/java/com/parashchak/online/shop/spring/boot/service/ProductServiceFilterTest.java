@@ -0,0 +1,114 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductFilter;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DBRider
+@SpringBootTest
+class ProductServiceFilterTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenPriceRange_whenFindFiltered_thenProductsInRangeReturnedInIdOrder() {
+        ProductFilter filter = ProductFilter.builder().minPrice(150.0).maxPrice(300.0).build();
+
+        assertEquals(List.of(2, 3), ids(productService.findFiltered(filter)));
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenCreationWindow_whenFindFiltered_thenCreatedFromIncludedAndCreatedToExcluded() {
+        ProductFilter filter = ProductFilter.builder()
+                .createdFrom(LocalDateTime.of(1000, 1, 1, 1, 1, 1))
+                .createdTo(LocalDateTime.of(3000, 1, 1, 1, 1, 1))
+                .build();
+
+        assertEquals(List.of(1, 2), ids(productService.findFiltered(filter)));
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenDescendingPriceSortAndLimit_whenFindFiltered_thenMostExpensiveProductsReturned() {
+        ProductFilter filter = ProductFilter.builder().sort("-price").limit(2).build();
+
+        assertEquals(List.of(3, 2), ids(productService.findFiltered(filter)));
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenNameSortAndMaxPrice_whenFindFiltered_thenMatchingProductsReturnedByName() {
+        ProductFilter filter = ProductFilter.builder().maxPrice(300.0).sort("name").build();
+
+        assertEquals(List.of(1, 2, 3), ids(productService.findFiltered(filter)));
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenFieldsAndPriceRange_whenFindFields_thenSelectedFieldsReturnedWithoutLoadingEntities() {
+
+        //prepare
+        ProductFilter filter = ProductFilter.builder().minPrice(200.0).sort("-price").build();
+
+        //when
+        List<Map<String, Object>> products = productService.findFields(filter, List.of("name", "price"));
+
+        //then
+        assertEquals(List.of(
+                Map.of("id", 3, "name", "thirdProduct", "price", 300.0),
+                Map.of("id", 2, "name", "secondProduct", "price", 200.0)), products);
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenIndexedProducts_whenSearchFields_thenSelectedFieldsReturnedInRelevanceOrder() {
+
+        //prepare
+        productSearchIndex.clear();
+        productService.findAll().forEach(productSearchIndex::put);
+        List<Integer> expectedIds = ids(productService.search("product"));
+
+        //when
+        List<Map<String, Object>> products = productService.searchFields("product", List.of("name"));
+
+        //then
+        assertEquals(expectedIds, products.stream().map(product -> product.get("id")).toList());
+        assertEquals(List.of("id", "name"), List.copyOf(products.get(0).keySet()));
+    }
+
+    private static List<Integer> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+}
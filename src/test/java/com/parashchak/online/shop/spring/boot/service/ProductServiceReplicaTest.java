@@ -0,0 +1,127 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import com.parashchak.online.shop.spring.boot.config.ReplicaRoutingDataSource;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static com.parashchak.online.shop.spring.boot.config.CacheConfig.PRODUCTS_CACHE;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Two H2 databases stand in for the primary and a replica, the replica holds a single
+ * product so that every read shows where it was served from.
+ */
+@DBRider
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+        "online-shop.datasource.replicas[0].url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:replica_schema.sql'",
+        "online-shop.datasource.read-your-writes-window=1m"
+})
+class ProductServiceReplicaTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Autowired
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setup() {
+        cacheManager.getCache(PRODUCTS_CACHE).clear();
+        JdbcTemplate replica = new JdbcTemplate(routingDataSource.getResolvedDataSources().get("replica-0"));
+        replica.update("delete from products");
+        replica.update("""
+                insert into products (id, name, price, creation_date, description, version)
+                values (1, 'replicaProduct', 100, timestamp '2000-01-01 01:01:01', 'replicaProductDescription', 0)""");
+        replica.update("delete from product_changes");
+        replica.update("""
+                insert into product_changes (sequence_number, product_id, type, changed_at)
+                values (41, 1, 'UPDATED', timestamp '2000-01-01 01:01:01')""");
+    }
+
+    @Test
+    void whenDataSourcesCreated_thenPrimaryAndReplicaAreSeparatePools() {
+        assertEquals("online-shop", primaryDataSource.getPoolName());
+        assertEquals(2, routingDataSource.getResolvedDataSources().size());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void whenFindAll_thenProductsReadFromReplica() {
+        List<Product> products = productService.findAll();
+
+        assertEquals(1, products.size());
+        assertEquals("replicaProduct", products.get(0).getName());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void whenFindById_thenProductLoadedFromPrimary() {
+        assertEquals("firstProduct", productService.findById(1).getName());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenRecentWriteByClient_whenGetProducts_thenProductsReadFromPrimary() throws Exception {
+
+        //prepare
+        Cookie lastWrite = mockMvc.perform(delete("/product/3"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie("last-write");
+
+        //then
+        assertNotNull(lastWrite);
+        mockMvc.perform(get("/products").cookie(lastWrite))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+        mockMvc.perform(get("/products"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void whenGetProducts_thenETagIsVersionOfReplica() throws Exception {
+        mockMvc.perform(get("/products"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"41\""))
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenExpiredWriteCookie_whenGetProducts_thenProductsReadFromReplica() throws Exception {
+        Cookie lastWrite = new Cookie("last-write", Long.toString(System.currentTimeMillis() - 120_000));
+
+        mockMvc.perform(get("/products").cookie(lastWrite))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+}
@@ -0,0 +1,204 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import com.parashchak.online.shop.spring.boot.config.DataSourceRouting;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DBRider
+@SpringBootTest
+class ProductServiceSingleFlightTest {
+
+    private static final int CALLERS = 100;
+
+    @Autowired
+    private ProductService productService;
+
+    @SpyBean
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry.getMeters().stream()
+                .filter(meter -> meter.getId().getName().equals("product.single.flight.joined"))
+                .forEach(meterRegistry::remove);
+        productSearchIndex.clear();
+        productService.findAll().forEach(productSearchIndex::put);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenConcurrentCallers_whenSearchSameText_thenOneQueryExecutedAndResultShared() throws Exception {
+
+        //prepare
+        doAnswer(invocation -> {
+            // holds the first search until every other caller has joined it
+            awaitJoined("search", CALLERS - 1);
+            return invocation.callRealMethod();
+        }).when(productSearchIndex).search("second");
+
+        //when
+        List<Future<List<Product>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> productService.search("second")));
+            }
+        }
+
+        //then
+        for (Future<List<Product>> result : results) {
+            assertEquals(List.of(2), result.get().stream().map(Product::getId).toList());
+        }
+        verify(productSearchIndex, times(1)).search("second");
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenWriteWhileSearchInFlight_whenSearchAfterWrite_thenNewQueryExecuted() throws Exception {
+
+        //prepare
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return invocation.callRealMethod();
+        }).doCallRealMethod().when(productSearchIndex).search("Product");
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<List<Product>> beforeWrite = executor.submit(() -> productService.search("Product"));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            //when
+            productService.deleteById(3);
+            List<Product> afterWrite = productService.search("Product");
+
+            //then
+            assertFalse(afterWrite.stream().anyMatch(product -> product.getId() == 3));
+            release.countDown();
+            beforeWrite.get();
+        }
+        verify(productSearchIndex, times(2)).search("Product");
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenBatchAddWhileSearchInFlight_whenSearchAfterWrite_thenNewQueryExecuted() throws Exception {
+
+        //prepare
+        // ids of added products stay clear of the ones of the dataset
+        jdbcTemplate.execute("alter sequence products_id_seq restart with 1000");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return invocation.callRealMethod();
+        }).doCallRealMethod().when(productSearchIndex).search("Product");
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<List<Product>> beforeWrite = executor.submit(() -> productService.search("Product"));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            //when
+            productService.addAll(List.of(Product.builder().name("addedProduct").price(400).build()));
+            List<Product> afterWrite = productService.search("Product");
+
+            //then
+            assertTrue(afterWrite.stream().anyMatch(product -> product.getName().equals("addedProduct")));
+            release.countDown();
+            beforeWrite.get();
+        }
+        verify(productSearchIndex, times(2)).search("Product");
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenReplicaSearchInFlight_whenSearchRequiringPrimary_thenOwnQueryExecuted() throws Exception {
+
+        //prepare
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return invocation.callRealMethod();
+        }).doCallRealMethod().when(productSearchIndex).search("Product");
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<List<Product>> replicaSearch = executor.submit(() -> productService.search("Product"));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            //when
+            List<Product> primarySearch = DataSourceRouting.onPrimary(() -> productService.search("Product"));
+
+            //then
+            assertEquals(3, primarySearch.size());
+            release.countDown();
+            replicaSearch.get();
+        }
+        verify(productSearchIndex, times(2)).search("Product");
+        assertEquals(0, joined("search"));
+    }
+
+    @Test
+    void whenProductServiceAdvised_thenSingleFlightInsideCachingAndOutsideTransaction() {
+
+        //when
+        List<String> advices = Arrays.stream(((Advised) productService).getAdvisors())
+                .map(advisor -> advisor.getAdvice().getClass().getSimpleName())
+                .toList();
+
+        //then
+        int caching = advices.indexOf("CacheInterceptor");
+        int singleFlight = advices.indexOf("AspectJAroundAdvice");
+        int transaction = advices.indexOf("TransactionInterceptor");
+        assertTrue(caching >= 0 && caching < singleFlight && singleFlight < transaction, advices.toString());
+    }
+
+    private void awaitJoined(String method, int callers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (joined(method) < callers) {
+            assertTrue(System.nanoTime() < deadline, "callers did not join in time");
+            Thread.sleep(1);
+        }
+    }
+
+    private double joined(String method) {
+        var counter = meterRegistry.find("product.single.flight.joined").tag("method", method).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
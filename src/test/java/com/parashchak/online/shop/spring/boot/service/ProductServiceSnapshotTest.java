@@ -0,0 +1,182 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import com.parashchak.online.shop.spring.boot.config.SqlStatistics;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DBRider
+@SpringBootTest(properties = "online-shop.snapshot.enabled=true")
+class ProductServiceSnapshotTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductServiceImpl productServiceImpl;
+
+    @Autowired
+    private ProductSnapshotService productSnapshotService;
+
+    @Autowired
+    private ProductChangeFeed productChangeFeed;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        // ids of added products stay clear of the ones of the dataset
+        jdbcTemplate.execute("alter sequence products_id_seq restart with 1000");
+        // changes are numbered from 1 again, the feed waits for a missing number after the purged ones
+        jdbcTemplate.execute("alter sequence product_changes_seq restart with 1");
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenSnapshot_whenFindAllByIdAndByPrice_thenNoSqlStatementExecuted() {
+
+        //prepare
+        productSnapshotService.rebuild();
+        // counts the statements of this thread only, not the ones of the refresher
+        SqlStatistics.start();
+
+        //when
+        List<Product> products = productService.findAll();
+        Product product = productService.findById(2);
+        List<Product> filtered = productService.findFiltered(ProductFilter.builder()
+                .minPrice(150.0)
+                .sort("-price")
+                .build());
+        SqlStatistics statistics = SqlStatistics.stop();
+
+        //then
+        assertEquals(List.of(1, 2, 3), ids(products));
+        assertEquals("secondProduct", product.getName());
+        assertEquals(200, product.getPrice());
+        assertEquals(LocalDateTime.of(2000, 1, 1, 1, 1, 1), product.getCreationDate());
+        assertEquals("secondProductDescription", product.getDescription());
+        assertEquals(0L, product.getVersion());
+        assertEquals(List.of(3, 2), ids(filtered));
+        assertEquals(0, statistics.getStatements());
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenWritesOnThisNode_whenFind_thenSnapshotHasThem() {
+
+        //prepare
+        productSnapshotService.rebuild();
+        Product added = product("addedProduct", 400);
+
+        //when
+        productService.add(added);
+        productService.update(1, product("updatedProduct", 150));
+        productService.deleteById(2);
+
+        //then
+        assertEquals(List.of(1, 3, added.getId()), ids(productService.findAll()));
+        Product updated = productService.findById(1);
+        assertEquals("updatedProduct", updated.getName());
+        assertEquals(1L, updated.getVersion());
+        assertNotNull(updated.getLastModified());
+        assertEquals(List.of(1, 3, added.getId()),
+                ids(productService.findFiltered(ProductFilter.builder().minPrice(150.0).build())));
+        assertThrows(IllegalStateException.class, () -> productService.findById(2));
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenWriteOnAnotherNode_whenChangePublished_thenSnapshotRefreshedInBackground() throws InterruptedException {
+
+        //prepare
+        productSnapshotService.rebuild();
+
+        //when
+        // written around the snapshot, like a write of another node
+        productServiceImpl.update(3, product("updatedProduct", 350));
+
+        //then
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!productService.findById(3).getName().equals("updatedProduct")
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals("updatedProduct", productService.findById(3).getName());
+        assertEquals(350, productService.findById(3).getPrice());
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenPurgedChanges_whenRefresh_thenSnapshotRebuilt() {
+
+        //prepare
+        productSnapshotService.rebuild();
+        productServiceImpl.update(1, product("updatedProduct", 150));
+        productServiceImpl.deleteById(2);
+        jdbcTemplate.update("update product_changes set changed_at = ?", LocalDateTime.now().minusDays(30));
+        productChangeFeed.purge();
+
+        //when
+        productSnapshotService.refresh();
+
+        //then
+        assertEquals(List.of(1, 3), ids(productService.findAll()));
+        assertEquals("updatedProduct", productService.findById(1).getName());
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenFilters_whenFindFiltered_thenSameProductsAsFromDatabase() {
+
+        //prepare
+        productSnapshotService.rebuild();
+        List<ProductFilter> filters = List.of(
+                ProductFilter.builder().build(),
+                ProductFilter.builder().maxPrice(200.0).build(),
+                ProductFilter.builder().minPrice(100.0).maxPrice(200.0).sort("price").build(),
+                ProductFilter.builder().minPrice(100.0).sort("-price").limit(2).build(),
+                ProductFilter.builder().maxPrice(250.0).sort("-name").build(),
+                ProductFilter.builder().createdFrom(LocalDateTime.of(1500, 1, 1, 0, 0)).build());
+
+        //when
+        List<List<Integer>> fromSnapshot = filters.stream()
+                .map(productService::findFiltered)
+                .map(ProductServiceSnapshotTest::ids)
+                .toList();
+
+        //then
+        List<List<Integer>> fromDatabase = filters.stream()
+                .map(productServiceImpl::findFiltered)
+                .map(ProductServiceSnapshotTest::ids)
+                .toList();
+        assertEquals(fromDatabase, fromSnapshot);
+        assertThrows(IllegalArgumentException.class, () ->
+                productService.findFiltered(ProductFilter.builder().minPrice(300.0).maxPrice(100.0).build()));
+        assertThrows(IllegalArgumentException.class, () ->
+                productService.findFiltered(ProductFilter.builder().limit(0).build()));
+    }
+
+    private static Product product(String name, double price) {
+        return Product.builder()
+                .name(name)
+                .price(price)
+                .description(name + "Description")
+                .build();
+    }
+
+    private static List<Integer> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+}
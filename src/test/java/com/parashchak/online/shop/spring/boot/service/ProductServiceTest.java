@@ -1,16 +1,29 @@
 package com.parashchak.online.shop.spring.boot.service;
 
+import com.parashchak.online.shop.spring.boot.entity.BatchResult;
 import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductFilter;
+import com.parashchak.online.shop.spring.boot.entity.ProductPage;
 import com.parashchak.online.shop.spring.boot.repository.ProductRepository;
 import org.junit.jupiter.api.*;
 import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Stream;
+
+import static com.parashchak.online.shop.spring.boot.config.CacheConfig.PRODUCTS_CACHE;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -25,11 +38,23 @@ class ProductServiceTest {
     @MockBean
     private ProductRepository productRepository;
 
+    // would follow the change feed through the mocked repository
+    @MockBean
+    private ProductSearchIndexUpdater productSearchIndexUpdater;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
     private List<Product> expectedProducts;
 
     @BeforeEach
     void setup() {
 
+        cacheManager.getCache(PRODUCTS_CACHE).clear();
+
         Product firstProduct = Product.builder()
                 .id(1)
                 .name("firstProduct")
@@ -57,6 +82,9 @@ class ProductServiceTest {
                 .build();
 
         expectedProducts = List.of(firstProduct, secondProduct, thirdProduct);
+
+        productSearchIndex.clear();
+        expectedProducts.forEach(productSearchIndex::put);
     }
 
     @Test
@@ -68,6 +96,23 @@ class ProductServiceTest {
         verify(productRepository).findAll();
     }
 
+    @Test
+    void whenFindAll_thenRepositoryCalledInReadOnlyTransaction() {
+
+        //prepare
+        List<Boolean> readOnly = new ArrayList<>();
+        Mockito.when(productRepository.findAll()).thenAnswer(invocation -> {
+            readOnly.add(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+            return expectedProducts;
+        });
+
+        //when
+        productService.findAll();
+
+        //then
+        assertEquals(List.of(true), readOnly);
+    }
+
     @Test
     void givenListOfProducts_whenFindAll_thenListOfTheSameProductsReturned() {
 
@@ -95,32 +140,46 @@ class ProductServiceTest {
     }
 
     @Test
-    void whenSearch_thenProductRepositoryAppropriateMethodCalled() {
+    void whenSearch_thenMatchingProductsLoadedById() {
+
+        //prepare
+        Mockito.when(productRepository.findAllById(List.of(2))).thenReturn(List.of(expectedProducts.get(1)));
+
         //when
-        productService.search("text");
+        productService.search("second");
 
         //then
-        verify(productRepository)
-                .findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase("text"
-                        , "text");
+        verify(productRepository).findAllById(List.of(2));
+    }
+
+    @Test
+    void whenSearch_thenRepositoryCalledInReadOnlyTransaction() {
+
+        //prepare
+        List<Boolean> readOnly = new ArrayList<>();
+        Mockito.when(productRepository.findAllById(List.of(2))).thenAnswer(invocation -> {
+            readOnly.add(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+            return List.of(expectedProducts.get(1));
+        });
+
+        //when
+        productService.search("second");
+
+        //then
+        assertEquals(List.of(true), readOnly);
     }
 
     @Test
     void givenListOfProductsToBeFound_whenSearch_thenActualProductsToBeFoundReturned() {
 
         //prepare
-        Mockito.when(productRepository
-                        .findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase("description"
-                                , "description"))
-                .thenReturn(expectedProducts);
+        Mockito.when(productRepository.findAllById(List.of(1, 2, 3)))
+                .thenReturn(List.of(expectedProducts.get(2), expectedProducts.get(0), expectedProducts.get(1)));
 
         //when
         List<Product> actualProducts = productService.search("description");
 
         //then
-        verify(productRepository)
-                .findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase("description"
-                        , "description");
         assertEquals(expectedProducts, actualProducts);
     }
 
@@ -129,34 +188,55 @@ class ProductServiceTest {
 
         //prepare
         Product expectedProduct = expectedProducts.get(1);
-        when(productRepository
-                .findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase("second"
-                        , "second"))
-                .thenReturn(List.of(expectedProduct));
+        when(productRepository.findAllById(List.of(2))).thenReturn(List.of(expectedProduct));
 
         //when
-        List<Product> actualProducts = productService.search("second");
+        List<Product> actualProducts = productService.search("SECOND");
 
         //then
-        verify(productRepository)
-                .findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase("second"
-                        , "second");
-        assertEquals(expectedProduct, actualProducts.get(0));
+        assertEquals(List.of(expectedProduct), actualProducts);
     }
 
     @Test
-    void givenListOfProducts_whenSearchTextDoesNotMatch_thenEmptyListReturned() {
-        //prepare
-        when(productRepository
-                .findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase("textWhichDoesNotMatch"
-                        , "textWhichDoesNotMatch"))
-                .thenReturn(new ArrayList<>());
+    void givenListOfProducts_whenSearchTextDoesNotMatch_thenEmptyListReturnedWithoutQuery() {
 
         //when
         List<Product> actualProducts = productService.search("textWhichDoesNotMatch");
 
         //then
         assertTrue(actualProducts.isEmpty());
+        verify(productRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void whenAdd_thenProductSearchable() {
+
+        //prepare
+        Product product = Product.builder()
+                .id(4)
+                .name("fourthProduct")
+                .description("fourthProductDescription")
+                .build();
+        when(productRepository.findAllById(List.of(4))).thenReturn(List.of(product));
+
+        //when
+        productService.add(product);
+
+        //then
+        assertEquals(List.of(product), productService.search("fourth"));
+    }
+
+    @Test
+    void whenDeleteById_thenProductNotSearchable() {
+
+        //prepare
+        Mockito.when(productRepository.deleteProductById(2)).thenReturn(1);
+
+        //when
+        productService.deleteById(2);
+
+        //then
+        assertTrue(productService.search("second").isEmpty());
     }
 
     @Test
@@ -188,6 +268,23 @@ class ProductServiceTest {
         verify(productRepository).findById(2);
     }
 
+    @Test
+    void whenFindById_thenRepositoryCalledInReadOnlyTransaction() {
+
+        //prepare
+        List<Boolean> readOnly = new ArrayList<>();
+        Mockito.when(productRepository.findById(2)).thenAnswer(invocation -> {
+            readOnly.add(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+            return Optional.of(expectedProducts.get(1));
+        });
+
+        //when
+        productService.findById(2);
+
+        //then
+        assertEquals(List.of(true), readOnly);
+    }
+
     @Test
     void givenProduct_whenFindById_thenThisProductReturned() {
         //prepare
@@ -217,23 +314,24 @@ class ProductServiceTest {
     }
 
     @Test
-    void whenDeleteById_thenProductRepositoryFindByIdAndDeleteByIdCalled() {
+    void whenDeleteById_thenOnlyProductRepositoryDeleteProductByIdCalled() {
         //prepare
-        Mockito.when(productRepository.findById(2)).thenReturn(Optional.of(expectedProducts.get(1)));
+        Mockito.when(productRepository.deleteProductById(2)).thenReturn(1);
 
         //when
         productService.deleteById(2);
 
         //then
-        verify(productRepository).findById(2);
-        verify(productRepository).deleteById(2);
+        verify(productRepository).deleteProductById(2);
+        verify(productRepository, never()).findById(anyInt());
+        verify(productRepository, never()).deleteById(anyInt());
     }
 
     @Test
     void givenNonExistingId_whenDeleteById_thenExceptionThrown() {
 
         //prepare
-        Mockito.when(productRepository.findById(5)).thenReturn(Optional.empty());
+        Mockito.when(productRepository.deleteProductById(5)).thenReturn(0);
 
         //then
         Exception exception = assertThrows(IllegalStateException.class, () -> productService.deleteById(5));
@@ -252,17 +350,26 @@ class ProductServiceTest {
     }
 
     @Test
-    void whenUpdate_thenProductRepositoryFindByIdAndSaveCalled() {
+    void whenUpdate_thenFoundProductChangedWithoutExplicitSave() {
 
         //prepare
-        Mockito.when(productRepository.findById(2)).thenReturn(Optional.of(expectedProducts.get(1)));
+        Product foundProduct = Product.builder()
+                .id(2)
+                .name("secondProduct")
+                .price(200)
+                .description("secondProductDescription")
+                .build();
+        Mockito.when(productRepository.findById(2)).thenReturn(Optional.of(foundProduct));
 
         //when
-        productService.update(2, expectedProducts.get(1));
+        productService.update(2, expectedProducts.get(2));
 
         //then
         verify(productRepository).findById(2);
-        verify(productRepository).save(expectedProducts.get(1));
+        verify(productRepository, never()).save(any(Product.class));
+        assertEquals("thirdProduct", foundProduct.getName());
+        assertEquals(300, foundProduct.getPrice());
+        assertEquals("thirdProductDescription", foundProduct.getDescription());
     }
 
     @Test
@@ -291,4 +398,267 @@ class ProductServiceTest {
                 () -> productService.update(5, expectedProducts.get(1)));
         verify(productRepository, never()).save(any(Product.class));
     }
+
+    @Test
+    void givenMoreProductsThanLimit_whenFindPage_thenPageWithNextTokenReturned() {
+
+        //prepare
+        Mockito.when(productRepository.findByIdGreaterThanOrderByIdAsc(0, PageRequest.ofSize(3)))
+                .thenReturn(expectedProducts);
+
+        //when
+        ProductPage page = productService.findPage(null, 2);
+
+        //then
+        assertEquals(expectedProducts.subList(0, 2), page.getProducts());
+        assertNotNull(page.getNext());
+    }
+
+    @Test
+    void givenNextToken_whenFindPage_thenProductsAfterLastIdOfPreviousPageRequested() {
+
+        //prepare
+        Mockito.when(productRepository.findByIdGreaterThanOrderByIdAsc(0, PageRequest.ofSize(3)))
+                .thenReturn(expectedProducts);
+        Mockito.when(productRepository.findByIdGreaterThanOrderByIdAsc(2, PageRequest.ofSize(3)))
+                .thenReturn(List.of(expectedProducts.get(2)));
+        String next = productService.findPage(null, 2).getNext();
+
+        //when
+        ProductPage page = productService.findPage(next, 2);
+
+        //then
+        assertEquals(List.of(expectedProducts.get(2)), page.getProducts());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    void givenInvalidToken_whenFindPage_thenExceptionThrown() {
+        assertThrows(IllegalArgumentException.class, () -> productService.findPage("not a token", 2));
+        verify(productRepository, never()).findByIdGreaterThanOrderByIdAsc(anyInt(), any());
+    }
+
+    @Test
+    void givenLimitAboveMaximum_whenFindPage_thenExceptionThrown() {
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.findPage(null, ProductServiceImpl.MAX_PAGE_LIMIT + 1));
+    }
+
+    @Test
+    void givenUnsupportedSort_whenFindFiltered_thenExceptionThrown() {
+        ProductFilter filter = ProductFilter.builder().sort("-description").build();
+
+        assertThrows(IllegalArgumentException.class, () -> productService.findFiltered(filter));
+        verify(productRepository, never()).findBy(ArgumentMatchers.<Specification<Product>>any(), any());
+    }
+
+    @Test
+    void givenMinPriceAboveMaxPrice_whenFindFiltered_thenExceptionThrown() {
+        ProductFilter filter = ProductFilter.builder().minPrice(300.0).maxPrice(100.0).build();
+
+        assertThrows(IllegalArgumentException.class, () -> productService.findFiltered(filter));
+        verify(productRepository, never()).findBy(ArgumentMatchers.<Specification<Product>>any(), any());
+    }
+
+    @Test
+    void givenEmptyCreationWindow_whenFindFiltered_thenExceptionThrown() {
+        LocalDateTime creationDate = LocalDateTime.of(2000, 1, 1, 0, 0);
+        ProductFilter filter = ProductFilter.builder().createdFrom(creationDate).createdTo(creationDate).build();
+
+        assertThrows(IllegalArgumentException.class, () -> productService.findFiltered(filter));
+    }
+
+    @Test
+    void givenLimitAboveMaximum_whenFindFiltered_thenExceptionThrown() {
+        ProductFilter filter = ProductFilter.builder().limit(ProductServiceImpl.MAX_PAGE_LIMIT + 1).build();
+
+        assertThrows(IllegalArgumentException.class, () -> productService.findFiltered(filter));
+    }
+
+    @Test
+    void givenUnknownField_whenFindFields_thenExceptionThrown() {
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.findFields(new ProductFilter(), List.of("name", "password")));
+        verify(productRepository, never()).findFields(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void givenListOfProducts_whenExport_thenEveryProductPassedToConsumerInOrder() {
+
+        //prepare
+        Mockito.when(productRepository.streamAllByOrderByIdAsc()).thenReturn(expectedProducts.stream());
+        List<Product> exportedProducts = new ArrayList<>();
+
+        //when
+        productService.export(exportedProducts::add);
+
+        //then
+        assertEquals(expectedProducts, exportedProducts);
+    }
+
+    @Test
+    void whenExport_thenRepositoryStreamClosed() {
+
+        //prepare
+        boolean[] closed = {false};
+        Mockito.when(productRepository.streamAllByOrderByIdAsc())
+                .thenReturn(Stream.<Product>empty().onClose(() -> closed[0] = true));
+
+        //when
+        productService.export(product -> {
+        });
+
+        //then
+        assertTrue(closed[0]);
+    }
+
+    @Test
+    void givenCachedProduct_whenFindById_thenProductRepositoryNotCalledAgain() {
+
+        //prepare
+        Mockito.when(productRepository.findById(2)).thenReturn(Optional.of(expectedProducts.get(1)));
+        productService.findById(2);
+
+        //when
+        Product actualProduct = productService.findById(2);
+
+        //then
+        verify(productRepository, times(1)).findById(2);
+        assertEquals(expectedProducts.get(1), actualProduct);
+    }
+
+    @Test
+    void givenNonExistingId_whenFindByIdTwice_thenMissNotCached() {
+
+        //prepare
+        Mockito.when(productRepository.findById(5)).thenReturn(Optional.empty());
+
+        //then
+        assertThrows(IllegalStateException.class, () -> productService.findById(5));
+        assertThrows(IllegalStateException.class, () -> productService.findById(5));
+        verify(productRepository, times(2)).findById(5);
+    }
+
+    @Test
+    void givenCachedProduct_whenUpdate_thenNextFindByIdReadsRepository() {
+
+        //prepare
+        Mockito.when(productRepository.findById(2)).thenReturn(Optional.of(expectedProducts.get(1)));
+        productService.findById(2);
+
+        //when
+        productService.update(2, expectedProducts.get(1));
+        productService.findById(2);
+
+        //then
+        verify(productRepository, times(3)).findById(2);
+    }
+
+    @Test
+    void givenCachedProduct_whenDeleteById_thenNextFindByIdReadsRepository() {
+
+        //prepare
+        Mockito.when(productRepository.findById(2)).thenReturn(Optional.of(expectedProducts.get(1)));
+        Mockito.when(productRepository.deleteProductById(2)).thenReturn(1);
+        productService.findById(2);
+
+        //when
+        productService.deleteById(2);
+        Mockito.when(productRepository.findById(2)).thenReturn(Optional.empty());
+
+        //then
+        assertThrows(IllegalStateException.class, () -> productService.findById(2));
+    }
+
+    @Test
+    void givenMoreProductsThanBatchSize_whenAddAll_thenSavedInChunks() {
+
+        //prepare
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < ProductServiceImpl.BATCH_SIZE + 1; i++) {
+            products.add(Product.builder().id(100 + i).name("product" + i).build());
+        }
+
+        //when
+        List<BatchResult> results = productService.addAll(products);
+
+        //then
+        verify(productRepository).saveAll(products.subList(0, ProductServiceImpl.BATCH_SIZE));
+        verify(productRepository).saveAll(products.subList(ProductServiceImpl.BATCH_SIZE, products.size()));
+        assertEquals(products.size(), results.size());
+        assertTrue(results.stream().allMatch(result -> result.getStatus() == HttpStatus.OK));
+    }
+
+    @Test
+    void givenFailingItem_whenAddAll_thenOnlyItReportedAsFailed() {
+
+        //prepare
+        Product failingProduct = expectedProducts.get(1);
+        when(productRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            if (products.contains(failingProduct)) {
+                throw new IllegalStateException("constraint violation");
+            }
+            return products;
+        });
+
+        //when
+        List<BatchResult> results = productService.addAll(expectedProducts);
+
+        //then
+        assertEquals(List.of(HttpStatus.OK, HttpStatus.INTERNAL_SERVER_ERROR, HttpStatus.OK),
+                results.stream().map(BatchResult::getStatus).toList());
+        assertEquals(new BatchResult(1, null, HttpStatus.INTERNAL_SERVER_ERROR, "constraint violation"), results.get(1));
+        verify(productRepository, times(4)).saveAll(anyList());
+    }
+
+    @Test
+    void givenNonExistingId_whenUpdateAll_thenOnlyThisItemReportedAsNotFound() {
+
+        //prepare
+        Product firstProduct = Product.builder().id(1).name("firstProduct").build();
+        when(productRepository.findAllById(List.of(1, 5))).thenReturn(List.of(firstProduct));
+        Product firstUpdate = Product.builder().id(1).name("updatedProduct").price(150).build();
+        Product missingUpdate = Product.builder().id(5).name("missingProduct").build();
+
+        //when
+        List<BatchResult> results = productService.updateAll(List.of(firstUpdate, missingUpdate));
+
+        //then
+        assertEquals(new BatchResult(0, 1, HttpStatus.OK, null), results.get(0));
+        assertEquals(new BatchResult(1, 5, HttpStatus.NOT_FOUND, "product with id=5 not found"), results.get(1));
+        assertEquals("updatedProduct", firstProduct.getName());
+        assertEquals(150, firstProduct.getPrice());
+    }
+
+    @Test
+    void givenNonExistingId_whenDeleteAllById_thenExistingDeletedAndMissingReportedAsNotFound() {
+
+        //prepare
+        when(productRepository.findExistingIds(List.of(2, 5))).thenReturn(List.of(2));
+
+        //when
+        List<BatchResult> results = productService.deleteAllById(List.of(2, 5));
+
+        //then
+        verify(productRepository).deleteAllByIdInBatch(Set.of(2));
+        assertEquals(new BatchResult(0, 2, HttpStatus.OK, null), results.get(0));
+        assertEquals(new BatchResult(1, 5, HttpStatus.NOT_FOUND, "product with id=5 not found"), results.get(1));
+        assertTrue(productService.search("second").isEmpty());
+    }
+
+    @Test
+    void givenStaleVersion_whenUpdate_thenExceptionThrownAndProductNotChanged() {
+
+        //prepare
+        Product foundProduct = Product.builder().id(2).name("secondProduct").version(3L).build();
+        Mockito.when(productRepository.findById(2)).thenReturn(Optional.of(foundProduct));
+        Product product = Product.builder().name("updatedProduct").version(2L).build();
+
+        //then
+        Exception exception = assertThrows(OptimisticLockingFailureException.class,
+                () -> productService.update(2, product));
+        assertEquals("product with id=2 has version=3, expected version=2", exception.getMessage());
+        assertEquals("secondProduct", foundProduct.getName());
+    }
 }
\ No newline at end of file
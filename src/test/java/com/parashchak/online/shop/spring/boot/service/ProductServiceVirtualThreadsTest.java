@@ -0,0 +1,75 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.parashchak.online.shop.spring.boot.config.CacheConfig.PRODUCTS_CACHE;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DBRider
+@SpringBootTest
+@ActiveProfiles("virtual-threads")
+class ProductServiceVirtualThreadsTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        cacheManager.getCache(PRODUCTS_CACHE).clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void givenVirtualThreadsProfile_whenProductsCacheCreated_thenAsyncCacheUsed() {
+        CaffeineCache cache = (CaffeineCache) cacheManager.getCache(PRODUCTS_CACHE);
+
+        assertNotNull(cache.getAsyncCache());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenConcurrentVirtualThreads_whenFindSameId_thenProductLoadedOnce() throws Exception {
+
+        //prepare
+        List<Future<String>> names = new ArrayList<>();
+
+        //when
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1000; i++) {
+                names.add(executor.submit(() -> productService.findById(2).getName()));
+            }
+        }
+
+        //then
+        for (Future<String> name : names) {
+            assertEquals("secondProduct", name.get());
+        }
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,324 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import com.parashchak.online.shop.spring.boot.config.ClusterCacheResolver;
+import com.parashchak.online.shop.spring.boot.config.WriteBehindProperties;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductFilter;
+import com.parashchak.online.shop.spring.boot.entity.WriteReceipt;
+import com.parashchak.online.shop.spring.boot.repository.ProductRepository;
+import com.parashchak.online.shop.spring.boot.repository.WriteBehindCheckpointRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.parashchak.online.shop.spring.boot.config.CacheConfig.PRODUCTS_CACHE;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DBRider
+@SpringBootTest(properties = {
+        "online-shop.write-behind.enabled=true",
+        "online-shop.write-behind.capacity=5",
+        // flushed by the tests
+        "online-shop.write-behind.flush-interval=PT1H"})
+class ProductServiceWriteBehindTest {
+
+    private static final Path DIRECTORY = createDirectory();
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductWriteBehind productWriteBehind;
+
+    @Autowired
+    private ProductReactiveService productReactiveService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private WriteBehindCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ClusterCacheResolver clusterCacheResolver;
+
+    @Autowired
+    private ProductChangeFeed productChangeFeed;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @DynamicPropertySource
+    static void journal(DynamicPropertyRegistry registry) {
+        registry.add("online-shop.write-behind.journal", () -> DIRECTORY.resolve("write-behind.journal"));
+    }
+
+    @BeforeEach
+    void setup() {
+        productWriteBehind.flush();
+        // ids of added products stay clear of the ones of the dataset
+        jdbcTemplate.execute("alter sequence products_id_seq restart with 1000");
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenSubmittedAdd_whenFlush_thenProductInsertedAndWriteFlushedWithId() {
+
+        //prepare
+        WriteReceipt submitted = productService.submitAdd(product("addedProduct"));
+        assertEquals(WriteReceipt.Status.PENDING, submitted.getStatus());
+        assertEquals(WriteReceipt.Status.PENDING, productService.findWrite(submitted.getTrackingId()).getStatus());
+        assertEquals(3, productRepository.count());
+
+        //when
+        productWriteBehind.flush();
+
+        //then
+        WriteReceipt flushed = productService.findWrite(submitted.getTrackingId());
+        assertEquals(WriteReceipt.Status.FLUSHED, flushed.getStatus());
+        assertEquals("addedProduct", productService.findById(flushed.getId()).getName());
+        assertEquals(flushed.getId(), productService.search("addedProduct").get(0).getId());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenTwoUpdatesOfSameProduct_whenFlush_thenOnlyLastOneWritten() {
+
+        //prepare
+        productService.submitUpdate(1, product("firstUpdate"));
+        WriteReceipt last = productService.submitUpdate(1, product("secondUpdate"));
+
+        //when
+        productWriteBehind.flush();
+
+        //then
+        assertEquals(1, statistics.getEntityUpdateCount());
+        assertEquals("secondUpdate", productRepository.findById(1).orElseThrow().getName());
+        assertEquals(WriteReceipt.Status.FLUSHED, productService.findWrite(last.getTrackingId()).getStatus());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenPendingUpdate_whenFind_thenUpdateSeenBeforeFlush() {
+
+        //prepare
+        productService.findById(1);
+        productService.submitUpdate(1, product("pendingUpdate"));
+
+        //when
+        Product pending = productService.findById(1);
+
+        //then
+        assertEquals("pendingUpdate", pending.getName());
+        assertNull(pending.getVersion());
+        assertEquals("pendingUpdate", productService.findAll().get(0).getName());
+        Map<String, Object> fields = productService.findFields(new ProductFilter(), List.of("name", "version")).get(0);
+        assertEquals("pendingUpdate", fields.get("name"));
+        assertNull(fields.get("version"));
+        // reads show the pending update before it is a change
+        assertNull(productService.findCatalogVersion());
+        assertEquals("firstProduct", productRepository.findById(1).orElseThrow().getName());
+
+        productWriteBehind.flush();
+        Product flushed = productService.findById(1);
+        assertEquals("pendingUpdate", flushed.getName());
+        assertNotNull(flushed.getVersion());
+        assertNotNull(productService.findCatalogVersion());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenPendingUpdate_whenFindReactive_thenUpdateSeenBeforeFlush() {
+
+        //prepare
+        productService.submitUpdate(2, product("pendingUpdate"));
+        clusterCacheResolver.evict(PRODUCTS_CACHE, 2);
+
+        //when
+        Product loaded = productReactiveService.findById(2).block();
+
+        //then
+        assertEquals("pendingUpdate", loaded.getName());
+        assertNull(loaded.getVersion());
+        productService.findById(2);
+        assertEquals("pendingUpdate", productReactiveService.findById(2).block().getName());
+        assertEquals("pendingUpdate", productReactiveService.findAll().collectList().block().get(1).getName());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenStaleVersion_whenSubmitUpdate_thenRejectedBeforeJournaled() {
+
+        //prepare
+        Product product = product("staleUpdate");
+        product.setVersion(5L);
+
+        //then
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> productService.submitUpdate(1, product));
+        assertThrows(IllegalStateException.class, () -> productService.submitUpdate(5, product("missing")));
+        assertEquals(0, productWriteBehind.getPendingCount());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenTwoUpdatesWithSameIfMatchVersion_whenSubmitUpdate_thenSecondRejected() {
+
+        //prepare
+        Product first = product("firstUpdate");
+        first.setVersion(0L);
+        Product second = product("secondUpdate");
+        second.setVersion(0L);
+        productService.submitUpdate(1, first);
+
+        //when
+        assertThrows(OptimisticLockingFailureException.class, () -> productService.submitUpdate(1, second));
+        productWriteBehind.flush();
+
+        //then
+        assertEquals("firstUpdate", productRepository.findById(1).orElseThrow().getName());
+        assertEquals(0, productWriteBehind.getPendingCount());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenProductDeletedBeforeFlush_whenFlush_thenUpdateFailedAndOthersFlushed() {
+
+        //prepare
+        WriteReceipt update = productService.submitUpdate(3, product("deletedUpdate"));
+        WriteReceipt add = productService.submitAdd(product("addedProduct"));
+        productService.deleteById(3);
+
+        //when
+        productWriteBehind.flush();
+
+        //then
+        WriteReceipt failed = productService.findWrite(update.getTrackingId());
+        assertEquals(WriteReceipt.Status.FAILED, failed.getStatus());
+        assertEquals("product with id=3 not found", failed.getMessage());
+        assertEquals(WriteReceipt.Status.FLUSHED, productService.findWrite(add.getTrackingId()).getStatus());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenFullJournal_whenSubmit_thenWriteRejected() {
+
+        //prepare
+        for (int i = 0; i < 5; i++) {
+            productService.submitUpdate(2, product("update" + i));
+        }
+
+        //then
+        assertThrows(RejectedExecutionException.class, () -> productService.submitAdd(product("rejected")));
+        productWriteBehind.flush();
+        assertEquals("update4", productRepository.findById(2).orElseThrow().getName());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenUnknownTrackingId_whenFindWrite_thenExceptionThrown() {
+
+        //then
+        assertThrows(IllegalStateException.class, () -> productService.findWrite("1000000"));
+        assertThrows(IllegalArgumentException.class, () -> productService.findWrite("first"));
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenCrashBeforeFlush_whenRestarted_thenJournalReplayedExactlyOnce() throws Exception {
+
+        //prepare
+        Path journal = DIRECTORY.resolve("crashed.journal");
+        ProductWriteBehind crashed = writeBehind(journal);
+        WriteReceipt add = crashed.submitAdd(product("recoveredProduct"));
+        crashed.submitUpdate(1, product("recoveredUpdate"));
+        crashed.destroy();
+        // a write cut short by the crash, it was never acknowledged
+        Files.writeString(journal, "{\"sequence\":3,\"type\":\"ADD\",\"pro", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        //when
+        ProductWriteBehind restarted = writeBehind(journal);
+        // what a crash between the commit of the flush and the compaction of the journal would leave
+        Path uncompacted = Files.copy(journal, DIRECTORY.resolve("uncompacted.journal"));
+        assertEquals(2, restarted.getPendingCount());
+        restarted.flush();
+        restarted.destroy();
+
+        //then
+        WriteReceipt flushed = restarted.findWrite(Long.parseLong(add.getTrackingId()));
+        assertEquals(WriteReceipt.Status.FLUSHED, flushed.getStatus());
+        assertEquals("recoveredProduct", productRepository.findById(flushed.getId()).orElseThrow().getName());
+        assertEquals("recoveredUpdate", productRepository.findById(1).orElseThrow().getName());
+        assertEquals(4, productRepository.count());
+
+        ProductWriteBehind replayedAgain = writeBehind(uncompacted);
+        assertEquals(0, replayedAgain.getPendingCount());
+        replayedAgain.flush();
+        replayedAgain.destroy();
+        assertEquals(4, productRepository.count());
+    }
+
+    private ProductWriteBehind writeBehind(Path journal) throws IOException {
+        ProductWriteBehind writeBehind = new ProductWriteBehind(new WriteBehindProperties(journal, 5, 1000),
+                objectMapper, productRepository, checkpointRepository, transactionTemplate, productSearchIndex,
+                clusterCacheResolver, productChangeFeed);
+        writeBehind.afterPropertiesSet();
+        return writeBehind;
+    }
+
+    private static Product product(String name) {
+        return Product.builder()
+                .name(name)
+                .price(500)
+                .creationDate(LocalDateTime.of(2000, 1, 1, 0, 0))
+                .description(name + "Description")
+                .build();
+    }
+
+    private static Path createDirectory() {
+        try {
+            return Files.createTempDirectory("write-behind");
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.core.api.dataset.ExpectedDataSet;
+import com.github.database.rider.spring.api.DBRider;
+import com.parashchak.online.shop.spring.boot.config.SqlStatistics;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DBRider
+@SpringBootTest
+class ProductServiceWriteTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        // counts the statements of this thread only, not the ones of the search index updater
+        SqlStatistics.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SqlStatistics.stop();
+    }
+
+    @Test
+    @DataSet("products.yml")
+    @ExpectedDataSet("products_after_delete.yml")
+    void whenDeleteById_thenSingleDeleteStatementAndChangeExecuted() {
+
+        //when
+        productService.deleteById(2);
+
+        //then
+        // the delete, then the next change sequence and insert of the change
+        assertEquals(3, SqlStatistics.current().getStatements());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    @ExpectedDataSet("products.yml")
+    void givenNonExistingId_whenDeleteById_thenExceptionThrownAfterSingleStatement() {
+
+        //then
+        Exception exception = assertThrows(IllegalStateException.class, () -> productService.deleteById(5));
+        assertEquals("product with id=5 not found", exception.getMessage());
+        assertEquals(1, SqlStatistics.current().getStatements());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenChangedProduct_whenUpdate_thenOneSelectAndOneUpdateExecutedAndChangeRecorded() {
+
+        //prepare
+        Product product = Product.builder()
+                .name("secondProduct")
+                .price(250)
+                .description("secondProductDescription")
+                .build();
+
+        //when
+        productService.update(2, product);
+
+        //then
+        assertEquals(4, SqlStatistics.current().getStatements());
+        assertEquals(1, statistics.getEntityUpdateCount());
+        Product updatedProduct = productService.findById(2);
+        assertEquals(250, updatedProduct.getPrice());
+        assertEquals(1, updatedProduct.getVersion());
+        assertNotNull(updatedProduct.getLastModified());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    @ExpectedDataSet("products.yml")
+    void givenUnchangedProduct_whenUpdate_thenOnlySelectExecuted() {
+
+        //prepare
+        Product product = Product.builder()
+                .name("secondProduct")
+                .price(200)
+                .description("secondProductDescription")
+                .build();
+
+        //when
+        productService.update(2, product);
+
+        //then
+        assertEquals(1, SqlStatistics.current().getStatements());
+        assertEquals(0, statistics.getEntityUpdateCount());
+    }
+}
@@ -0,0 +1,216 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSnapshotTest {
+
+    private static final LocalDateTime CREATION_DATE = LocalDateTime.of(1000, 1, 1, 1, 1, 1, 123_456_000);
+
+    private ProductSnapshot snapshot;
+
+    @BeforeEach
+    void setup() {
+        snapshot = ProductSnapshot.builder()
+                .add(product(2, "Apfelsaft", 300))
+                .add(product(5, "Crème brûlée", 100))
+                .add(product(7, "Garden chair", 200))
+                .add(product(9, "Red apple", 100))
+                .build(10);
+    }
+
+    @Test
+    void whenFindById_thenAllFieldsOfProductReturned() {
+
+        //when
+        Product product = snapshot.findById(5);
+
+        //then
+        assertEquals(5, product.getId());
+        assertEquals("Crème brûlée", product.getName());
+        assertEquals(100, product.getPrice());
+        assertEquals(CREATION_DATE, product.getCreationDate());
+        assertEquals("Description of Crème brûlée", product.getDescription());
+        assertEquals(3L, product.getVersion());
+        assertEquals(CREATION_DATE.plusDays(1), product.getLastModified());
+    }
+
+    @Test
+    void givenNullFields_whenFindById_thenNullsReturned() {
+
+        //prepare
+        ProductSnapshot withNulls = ProductSnapshot.builder()
+                .add(Product.builder().id(1).name("").price(10).build())
+                .add(Product.builder().id(2).description("only a description").build())
+                .build(0);
+
+        //when
+        Product first = withNulls.findById(1);
+        Product second = withNulls.findById(2);
+
+        //then
+        assertEquals("", first.getName());
+        assertNull(first.getDescription());
+        assertNull(first.getCreationDate());
+        assertNull(first.getVersion());
+        assertNull(first.getLastModified());
+        assertNull(second.getName());
+        assertEquals("only a description", second.getDescription());
+    }
+
+    @Test
+    void whenFindByIdMissing_thenNullReturned() {
+        assertNull(snapshot.findById(1));
+        assertNull(snapshot.findById(6));
+        assertNull(snapshot.findById(10));
+    }
+
+    @Test
+    void whenFindAll_thenProductsOrderedById() {
+        assertEquals(List.of(2, 5, 7, 9), ids(snapshot.findAll()));
+    }
+
+    @Test
+    void whenFindByPrice_thenProductsWithinInclusiveBoundsOrderedByIdAndLimitApplied() {
+        assertEquals(List.of(5, 7, 9), ids(snapshot.findByPrice(100, 200, 10)));
+        assertEquals(List.of(5, 7), ids(snapshot.findByPrice(100, 200, 2)));
+        assertEquals(List.of(), ids(snapshot.findByPrice(101, 199, 10)));
+    }
+
+    @Test
+    void whenFindByPriceOrderByPrice_thenTiesOrderedByIdInTheSameDirection() {
+        assertEquals(List.of(5, 9, 7), ids(snapshot.findByPriceOrderByPrice(100, 200, false, 10)));
+        assertEquals(List.of(7, 9, 5), ids(snapshot.findByPriceOrderByPrice(100, 200, true, 10)));
+        assertEquals(List.of(2, 7), ids(snapshot.findByPriceOrderByPrice(150,
+                Double.POSITIVE_INFINITY, true, 2)));
+        assertEquals(List.of(), ids(snapshot.findByPriceOrderByPrice(301, 400, false, 10)));
+    }
+
+    @Test
+    void givenChanges_whenApply_thenNewSnapshotHasThemAndOldOneIsUnchanged() {
+
+        //prepare
+        List<ProductChange> changes = List.of(
+                change(1, ProductChange.Type.CREATED, product(1, "Lemonade", 150)),
+                change(2, ProductChange.Type.DELETED, null),
+                change(7, ProductChange.Type.UPDATED, product(7, "Garden chair", 50)),
+                change(12, ProductChange.Type.CREATED, product(12, "Tea", 150)),
+                // a product changed twice carries its latest state on both changes
+                change(12, ProductChange.Type.UPDATED, product(12, "Tea", 150)));
+
+        //when
+        ProductSnapshot applied = snapshot.apply(15, changes);
+
+        //then
+        assertEquals(15, applied.getSequence());
+        assertEquals(List.of(1, 5, 7, 9, 12), ids(applied.findAll()));
+        assertEquals(50, applied.findById(7).getPrice());
+        assertEquals("Lemonade", applied.findById(1).getName());
+        assertEquals("Description of Red apple", applied.findById(9).getDescription());
+        assertEquals(List.of(7, 5, 9, 1, 12),
+                ids(applied.findByPriceOrderByPrice(0, 1000, false, 10)));
+        assertEquals(List.of(12, 1, 9, 5, 7),
+                ids(applied.findByPriceOrderByPrice(0, 1000, true, 10)));
+
+        assertEquals(10, snapshot.getSequence());
+        assertEquals(List.of(2, 5, 7, 9), ids(snapshot.findAll()));
+        assertEquals(200, snapshot.findById(7).getPrice());
+    }
+
+    @Test
+    void givenProductsOutOfIdOrder_whenAdd_thenIllegalArgumentExceptionThrown() {
+        ProductSnapshot.Builder builder = ProductSnapshot.builder().add(product(2, "Tea", 1));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(product(2, "Coffee", 1)));
+    }
+
+    @Test
+    void givenManyProducts_whenFindByPriceOrderByPrice_thenPriceOrderKeptAcrossApply() {
+
+        //prepare
+        ProductSnapshot.Builder builder = ProductSnapshot.builder();
+        for (int id = 1; id <= 5000; id++) {
+            builder.add(product(id, "product" + id, id * 37 % 1000));
+        }
+        ProductSnapshot large = builder.build(0)
+                .apply(1, List.of(change(2500, ProductChange.Type.UPDATED, product(2500, "cheapest", -1))));
+
+        //when
+        List<Product> products = large.findByPriceOrderByPrice(Double.NEGATIVE_INFINITY,
+                Double.POSITIVE_INFINITY, false, 5000);
+
+        //then
+        assertEquals(5000, products.size());
+        assertEquals(2500, products.get(0).getId());
+        for (int i = 1; i < products.size(); i++) {
+            Product previous = products.get(i - 1);
+            Product product = products.get(i);
+            assertTrue(previous.getPrice() < product.getPrice()
+                    || previous.getPrice() == product.getPrice() && previous.getId() < product.getId());
+        }
+    }
+
+    @Test
+    void givenManyProducts_whenFindByPrice_thenSameProductsAsScanAcrossApply() {
+
+        //prepare
+        ProductSnapshot.Builder builder = ProductSnapshot.builder();
+        for (int id = 1; id <= 5000; id++) {
+            builder.add(product(id, "product" + id, id * 37 % 1000));
+        }
+        ProductSnapshot large = builder.build(0).apply(1, List.of(
+                change(10, ProductChange.Type.DELETED, null),
+                change(2500, ProductChange.Type.UPDATED, product(2500, "renamed", 500)),
+                change(6000, ProductChange.Type.CREATED, product(6000, "added", 500))));
+
+        //then
+        for (int limit : new int[]{1, 10, 100, 5000}) {
+            List<Integer> scanned = large.findAll().stream()
+                    .filter(product -> product.getPrice() >= 300 && product.getPrice() <= 500)
+                    .limit(limit)
+                    .map(Product::getId)
+                    .toList();
+            assertEquals(scanned, ids(large.findByPrice(300, 500, limit)));
+        }
+        assertEquals("renamed", large.findById(2500).getName());
+        assertEquals("added", large.findById(6000).getName());
+        assertNull(large.findById(10));
+    }
+
+    @Test
+    void givenBuiltSnapshot_whenAdd_thenIllegalStateExceptionThrown() {
+
+        //prepare
+        ProductSnapshot.Builder builder = ProductSnapshot.builder().add(product(1, "Coffee", 1));
+        builder.build(0);
+
+        //then
+        assertThrows(IllegalStateException.class, () -> builder.add(product(2, "Tea", 1)));
+    }
+
+    private static Product product(int id, String name, double price) {
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .price(price)
+                .creationDate(CREATION_DATE)
+                .description("Description of " + name)
+                .version(3L)
+                .lastModified(CREATION_DATE.plusDays(1))
+                .build();
+    }
+
+    private static ProductChange change(int productId, ProductChange.Type type, Product product) {
+        return new ProductChange(0, productId, type, CREATION_DATE, product);
+    }
+
+    private static List<Integer> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+}
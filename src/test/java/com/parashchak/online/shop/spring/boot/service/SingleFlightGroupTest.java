@@ -0,0 +1,140 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightGroupTest {
+
+    private static final int CALLERS = 50;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final CountDownLatch joined = new CountDownLatch(CALLERS - 1);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final SingleFlightGroup<String> group = new SingleFlightGroup<>(Duration.ofSeconds(10), key -> joined.countDown());
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void givenConcurrentCallersWithSameKey_whenExecute_thenOneCallMadeAndResultShared() throws Exception {
+
+        //when
+        List<Future<Object>> results = executeConcurrently(() -> {
+            calls.incrementAndGet();
+            started.countDown();
+            // every other caller has joined before the result is there
+            assertTrue(joined.await(10, TimeUnit.SECONDS));
+            return "result";
+        });
+
+        //then
+        for (Future<Object> result : results) {
+            assertEquals("result", result.get());
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void givenFailingCall_whenCallersJoined_thenEveryCallerGetsTheFailure() throws Exception {
+
+        //prepare
+        IllegalStateException failure = new IllegalStateException("product with id=1 not found");
+
+        //when
+        List<Future<Object>> results = executeConcurrently(() -> {
+            calls.incrementAndGet();
+            started.countDown();
+            assertTrue(joined.await(10, TimeUnit.SECONDS));
+            throw failure;
+        });
+
+        //then
+        for (Future<Object> result : results) {
+            ExecutionException exception = assertThrows(ExecutionException.class, result::get);
+            assertSame(failure, exception.getCause());
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void givenSlowCall_whenJoinedCallerWaitsLongerThanTimeout_thenQueryTimeoutExceptionThrown() throws Exception {
+
+        //prepare
+        SingleFlightGroup<String> group = new SingleFlightGroup<>(Duration.ofMillis(50), key -> {
+        });
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> leader = executor.submit(() -> execute(group, () -> {
+            started.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        //then
+        assertThrows(QueryTimeoutException.class, () -> group.execute("key", () -> "own result"));
+        release.countDown();
+        assertEquals(true, leader.get());
+    }
+
+    @Test
+    void givenForgottenCallInFlight_whenSameKeyExecuted_thenNewCallMade() throws Throwable {
+
+        //prepare
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> leader = executor.submit(() -> execute(group, () -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return "before write";
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        //when
+        group.forget();
+        Object result = group.execute("key", () -> "after write");
+
+        //then
+        assertEquals("after write", result);
+        release.countDown();
+        assertEquals("before write", leader.get());
+    }
+
+    @Test
+    void givenCompletedCall_whenSameKeyExecuted_thenNewCallMade() throws Throwable {
+        group.execute("key", calls::incrementAndGet);
+        group.execute("key", calls::incrementAndGet);
+
+        assertEquals(2, calls.get());
+    }
+
+    private List<Future<Object>> executeConcurrently(SingleFlightGroup.Call call) throws InterruptedException {
+        List<Future<Object>> results = new ArrayList<>();
+        results.add(executor.submit(() -> execute(group, call)));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(executor.submit(() -> execute(group, call)));
+        }
+        return results;
+    }
+
+    private static Object execute(SingleFlightGroup<String> group, SingleFlightGroup.Call call) throws Exception {
+        try {
+            return group.execute("key", call);
+        } catch (Exception | Error exception) {
+            throw exception;
+        } catch (Throwable throwable) {
+            throw new IllegalStateException(throwable);
+        }
+    }
+}
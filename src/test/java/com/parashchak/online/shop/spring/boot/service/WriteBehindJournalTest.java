@@ -0,0 +1,172 @@
+package com.parashchak.online.shop.spring.boot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.service.WriteBehindJournal.Entry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindJournalTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void givenAppendedEntries_whenOpen_thenEntriesAndIdRead() throws Exception {
+
+        //prepare
+        Path path = directory.resolve("journal");
+        String id;
+        try (WriteBehindJournal journal = WriteBehindJournal.open(path, objectMapper)) {
+            id = journal.getId();
+            journal.append(new Entry(1, Entry.Type.ADD, null, product("added")));
+            journal.append(new Entry(2, Entry.Type.UPDATE, 1, product("updated")));
+        }
+
+        //when
+        try (WriteBehindJournal journal = WriteBehindJournal.open(path, objectMapper)) {
+
+            //then
+            assertEquals(id, journal.getId());
+            assertEquals(List.of(1L, 2L), journal.getEntries().stream().map(Entry::sequence).toList());
+            assertEquals(Entry.Type.UPDATE, journal.getEntries().get(1).type());
+            assertEquals(1, journal.getEntries().get(1).id());
+            assertEquals("updated", journal.getEntries().get(1).product().getName());
+            assertEquals(LocalDateTime.of(2000, 1, 1, 0, 0),
+                    journal.getEntries().get(0).product().getCreationDate());
+        }
+    }
+
+    @Test
+    void givenTornLastLine_whenOpen_thenLineDroppedAndAppendsContinueAfterLastEntry() throws Exception {
+
+        //prepare
+        Path path = directory.resolve("journal");
+        try (WriteBehindJournal journal = WriteBehindJournal.open(path, objectMapper)) {
+            journal.append(new Entry(1, Entry.Type.ADD, null, product("added")));
+        }
+        Files.writeString(path, "{\"sequence\":2,\"type\":\"UPD", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        //when
+        try (WriteBehindJournal journal = WriteBehindJournal.open(path, objectMapper)) {
+            assertEquals(List.of(1L), journal.getEntries().stream().map(Entry::sequence).toList());
+            journal.append(new Entry(2, Entry.Type.ADD, null, product("second")));
+        }
+
+        //then
+        try (WriteBehindJournal journal = WriteBehindJournal.open(path, objectMapper)) {
+            assertEquals(List.of(1L, 2L), journal.getEntries().stream().map(Entry::sequence).toList());
+        }
+    }
+
+    @Test
+    void givenRewrite_whenOpen_thenOnlyRewrittenEntriesReadUnderSameId() throws Exception {
+
+        //prepare
+        Path path = directory.resolve("journal");
+        String id;
+        try (WriteBehindJournal journal = WriteBehindJournal.open(path, objectMapper)) {
+            id = journal.getId();
+            journal.append(new Entry(1, Entry.Type.ADD, null, product("flushed")));
+            journal.append(new Entry(2, Entry.Type.ADD, null, product("pending")));
+
+            //when
+            journal.rewrite(List.of(new Entry(2, Entry.Type.ADD, null, product("pending"))));
+            journal.append(new Entry(3, Entry.Type.ADD, null, product("appended")));
+        }
+
+        //then
+        try (WriteBehindJournal journal = WriteBehindJournal.open(path, objectMapper)) {
+            assertEquals(id, journal.getId());
+            assertEquals(List.of(2L, 3L), journal.getEntries().stream().map(Entry::sequence).toList());
+        }
+        assertFalse(Files.exists(directory.resolve("journal.tmp")));
+    }
+
+    @Test
+    void givenConcurrentWriters_whenForce_thenForcesShared() throws Exception {
+
+        //prepare
+        Path path = directory.resolve("journal");
+        int writers = 50;
+        AtomicLong sequences = new AtomicLong();
+        ReentrantLock order = new ReentrantLock();
+        try (WriteBehindJournal journal = WriteBehindJournal.open(path, objectMapper)) {
+
+            //when
+            try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+                for (int i = 0; i < writers; i++) {
+                    executor.submit(() -> {
+                        long sequence;
+                        // entries are written in the order of their sequences
+                        order.lock();
+                        try {
+                            sequence = sequences.incrementAndGet();
+                            journal.write(new Entry(sequence, Entry.Type.ADD, null, product("added")));
+                        } finally {
+                            order.unlock();
+                        }
+                        journal.force(sequence);
+                        return null;
+                    });
+                }
+            }
+
+            //then
+            long forces = journal.getForces();
+            assertTrue(forces <= writers);
+            // every entry was forced by the writers
+            journal.force(writers);
+            assertEquals(forces, journal.getForces());
+        }
+        try (WriteBehindJournal journal = WriteBehindJournal.open(path, objectMapper)) {
+            assertEquals(LongStream.rangeClosed(1, writers).boxed().toList(),
+                    journal.getEntries().stream().map(Entry::sequence).toList());
+        }
+    }
+
+    @Test
+    void givenForcedEntries_whenForceAgain_thenNoForce() throws Exception {
+
+        //prepare
+        Path path = directory.resolve("journal");
+        try (WriteBehindJournal journal = WriteBehindJournal.open(path, objectMapper)) {
+            journal.write(new Entry(1, Entry.Type.ADD, null, product("first")));
+            journal.write(new Entry(2, Entry.Type.ADD, null, product("second")));
+
+            //when
+            journal.force(2);
+            journal.force(1);
+            journal.force(2);
+
+            //then
+            // one force covered both entries
+            assertEquals(1, journal.getForces());
+        }
+    }
+
+    private static Product product(String name) {
+        return Product.builder()
+                .name(name)
+                .price(100)
+                .creationDate(LocalDateTime.of(2000, 1, 1, 0, 0))
+                .build();
+    }
+}
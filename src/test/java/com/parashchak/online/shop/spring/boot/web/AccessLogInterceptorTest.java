@@ -0,0 +1,117 @@
+package com.parashchak.online.shop.spring.boot.web;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.parashchak.online.shop.spring.boot.config.SqlStatistics;
+import org.junit.jupiter.api.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogInterceptorTest {
+
+    private final Logger accessLogger = (Logger) LoggerFactory.getLogger("access");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setup() {
+        appender.start();
+        accessLogger.addAppender(appender);
+
+        request = new MockHttpServletRequest("GET", "/product/3");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/product/{id}");
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("id", "3"));
+        response = new MockHttpServletResponse();
+    }
+
+    @AfterEach
+    void tearDown() {
+        accessLogger.detachAppender(appender);
+    }
+
+    @Test
+    void givenRequestWithResultCount_whenCompleted_thenOneAccessLogLineWritten() {
+
+        //prepare
+        AccessLogInterceptor interceptor = new AccessLogInterceptor(true, 1.0);
+
+        //when
+        interceptor.preHandle(request, response, null);
+        request.setAttribute(AccessLogInterceptor.RESULT_COUNT_ATTRIBUTE, 1);
+        interceptor.afterCompletion(request, response, null, null);
+
+        //then
+        assertEquals(1, appender.list.size());
+        String message = appender.list.get(0).getFormattedMessage();
+        assertTrue(message.startsWith("method=GET endpoint=/product/{id} status=200 count=1 id=3 latencyMicros="));
+    }
+
+    @Test
+    void givenZeroSampleRate_whenSuccessfulRequestCompleted_thenNothingLogged() {
+
+        //prepare
+        AccessLogInterceptor interceptor = new AccessLogInterceptor(true, 0.0);
+
+        //when
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, null);
+
+        //then
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    void givenZeroSampleRate_whenFailedRequestCompleted_thenAccessLogLineWritten() {
+
+        //prepare
+        AccessLogInterceptor interceptor = new AccessLogInterceptor(true, 0.0);
+        response.setStatus(500);
+
+        //when
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, null);
+
+        //then
+        assertEquals(1, appender.list.size());
+    }
+
+    @Test
+    void givenDisabledAccessLog_whenRequestCompleted_thenNothingLogged() {
+
+        //prepare
+        AccessLogInterceptor interceptor = new AccessLogInterceptor(false, 1.0);
+
+        //when
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, null);
+
+        //then
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    void givenSqlStatistics_whenCompleted_thenStatementsLogged() {
+
+        //prepare
+        AccessLogInterceptor interceptor = new AccessLogInterceptor(true, 1.0);
+
+        //when
+        interceptor.preHandle(request, response, null);
+        request.setAttribute(SqlStatisticsInterceptor.SQL_STATISTICS_ATTRIBUTE, SqlStatistics.start());
+        SqlStatistics.stop();
+        interceptor.afterCompletion(request, response, null, null);
+
+        //then
+        String message = appender.list.get(0).getFormattedMessage();
+        assertTrue(message.endsWith(" statements=0 sqlMicros=0"));
+    }
+}
@@ -1,24 +1,50 @@
 package com.parashchak.online.shop.spring.boot.web;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.parashchak.online.shop.spring.boot.entity.BatchResult;
 import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.entity.ProductChange;
+import com.parashchak.online.shop.spring.boot.entity.ProductChanges;
+import com.parashchak.online.shop.spring.boot.entity.ProductFilter;
+import com.parashchak.online.shop.spring.boot.entity.ProductPage;
+import com.parashchak.online.shop.spring.boot.entity.WriteReceipt;
+import com.parashchak.online.shop.spring.boot.exception.ProductConflictException;
+import com.parashchak.online.shop.spring.boot.exception.ProductNotFoundException;
+import com.parashchak.online.shop.spring.boot.service.CatalogVersion;
 import com.parashchak.online.shop.spring.boot.service.ProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ProductController.class)
+@Import(SimpleMeterRegistry.class)
 class ProductControllerTest {
 
     @Autowired
@@ -59,6 +85,8 @@ class ProductControllerTest {
                 .build();
 
         expectedProducts = List.of(firstProduct, secondProduct, thirdProduct);
+
+        when(productService.findCatalogVersion()).thenReturn(7L);
     }
 
     @Test
@@ -114,6 +142,177 @@ class ProductControllerTest {
         verify(productService).findAll();
     }
 
+    @Test
+    void givenSmileAccepted_whenFindAll_thenProductsWrittenAsSmile() throws Exception {
+
+        //prepare
+        when(productService.findAll()).thenReturn(expectedProducts);
+
+        //when
+        byte[] body = mockMvc.perform(get("/products")
+                        .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        //then
+        JsonNode products = new ObjectMapper(new SmileFactory()).readTree(body);
+        assertEquals(3, products.size());
+        assertEquals("secondProduct", products.get(1).get("name").asText());
+        assertEquals("-999999999-01-01T00:00:00", products.get(1).get("creationDate").asText());
+    }
+
+    @Test
+    void givenCborAccepted_whenFindAll_thenProductsWrittenAsCbor() throws Exception {
+
+        //prepare
+        when(productService.findAll()).thenReturn(expectedProducts);
+
+        //when
+        byte[] body = mockMvc.perform(get("/products")
+                        .accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        //then
+        JsonNode products = new ObjectMapper(new CBORFactory()).readTree(body);
+        assertEquals(3, products.size());
+        assertEquals(300, products.get(2).get("price").asDouble());
+    }
+
+    @Test
+    void givenLimit_whenFindAll_thenPageWithNextTokenReturned() throws Exception {
+
+        //prepare
+        when(productService.findPage("token", 2))
+                .thenReturn(new ProductPage(expectedProducts.subList(0, 2), "nextToken"));
+
+        //then
+        mockMvc.perform(get("/products")
+                        .param("after", "token")
+                        .param("limit", "2"))
+
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.products.length()").value(2))
+                .andExpect(jsonPath("$.products[0].id").value(1))
+                .andExpect(jsonPath("$.products[1].id").value(2))
+                .andExpect(jsonPath("$.next").value("nextToken"));
+
+        verify(productService).findPage("token", 2);
+        verify(productService, never()).findAll();
+    }
+
+    @Test
+    void givenPriceRangeAndSort_whenFindAll_thenFilteredProductsReturned() throws Exception {
+
+        //prepare
+        ProductFilter filter = ProductFilter.builder()
+                .minPrice(100.0)
+                .maxPrice(200.0)
+                .sort("-price")
+                .build();
+        when(productService.findFiltered(filter)).thenReturn(List.of(expectedProducts.get(1), expectedProducts.get(0)));
+
+        //then
+        mockMvc.perform(get("/products")
+                        .param("minPrice", "100")
+                        .param("maxPrice", "200")
+                        .param("sort", "-price"))
+
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[1].id").value(1));
+
+        verify(productService).findFiltered(filter);
+        verify(productService, never()).findAll();
+    }
+
+    @Test
+    void givenCreationWindowAndLimit_whenFindAll_thenFilteredRequestedInsteadOfPage() throws Exception {
+
+        //prepare
+        ProductFilter filter = ProductFilter.builder()
+                .createdFrom(LocalDateTime.of(2000, 1, 1, 0, 0))
+                .createdTo(LocalDateTime.of(2001, 1, 1, 0, 0))
+                .limit(2)
+                .build();
+        when(productService.findFiltered(filter)).thenReturn(List.of(expectedProducts.get(2)));
+
+        //then
+        mockMvc.perform(get("/products")
+                        .param("createdFrom", "2000-01-01T00:00:00")
+                        .param("createdTo", "2001-01-01T00:00:00")
+                        .param("limit", "2"))
+
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(3));
+
+        verify(productService).findFiltered(filter);
+        verify(productService, never()).findPage(any(), anyInt());
+    }
+
+    @Test
+    void givenUnsupportedSort_whenFindAll_thenResponseWithBadRequestStatusSent() throws Exception {
+
+        //prepare
+        when(productService.findFiltered(any()))
+                .thenThrow(new IllegalArgumentException("sort must be one of [price, name, creationDate]"));
+
+        //then
+        mockMvc.perform(get("/products")
+                        .param("sort", "description"))
+
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("BAD_REQUEST"));
+    }
+
+    @Test
+    void givenInvalidToken_whenFindAll_thenResponseWithBadRequestStatusSent() throws Exception {
+
+        //prepare
+        when(productService.findPage("invalid", 2))
+                .thenThrow(new IllegalArgumentException("invalid page token: invalid"));
+
+        //then
+        mockMvc.perform(get("/products")
+                        .param("after", "invalid")
+                        .param("limit", "2"))
+
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("BAD_REQUEST"))
+                .andExpect(jsonPath("$.message").value("invalid page token: invalid"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenListOfProducts_whenExport_thenOneJsonLinePerProductStreamed() throws Exception {
+
+        //prepare
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(0);
+            expectedProducts.forEach(consumer);
+            return null;
+        }).when(productService).export(any(Consumer.class));
+
+        //then
+        String body = mockMvc.perform(get("/products/export"))
+
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,\"name\":\"firstProduct\""));
+        assertTrue(lines[1].startsWith("{\"id\":2,\"name\":\"secondProduct\""));
+        assertTrue(lines[2].startsWith("{\"id\":3,\"name\":\"thirdProduct\""));
+        assertTrue(body.endsWith("\n"));
+    }
+
     @Test
     void givenListOfProductsToBeFound_whenSearch_thenActualProductsToBeFoundReturned() throws Exception {
 
@@ -190,6 +389,65 @@ class ProductControllerTest {
         verify(productService).search("textWhichDoesNotMatch");
     }
 
+    @Test
+    void givenFields_whenFindAll_thenOnlySelectedFieldsReturned() throws Exception {
+
+        //prepare
+        when(productService.findFields(new ProductFilter(), List.of("name", "price")))
+                .thenReturn(List.of(Map.of("id", 1, "name", "firstProduct", "price", 100.0)));
+
+        //then
+        mockMvc.perform(get("/products")
+                        .param("fields", "name,price"))
+
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].name").value("firstProduct"))
+                .andExpect(jsonPath("$[0].price").value(100))
+                .andExpect(jsonPath("$[0].description").doesNotExist());
+
+        verify(productService, never()).findAll();
+    }
+
+    @Test
+    void givenLimitAndFields_whenFindAll_thenOnlySelectedFieldsOfLimitedProductsReturned() throws Exception {
+
+        //prepare
+        when(productService.findFields(ProductFilter.builder().limit(10).build(), List.of("id", "name")))
+                .thenReturn(List.of(Map.of("id", 1, "name", "firstProduct")));
+
+        //then
+        mockMvc.perform(get("/products")
+                        .param("limit", "10")
+                        .param("fields", "id,name"))
+
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].name").value("firstProduct"))
+                .andExpect(jsonPath("$[0].price").doesNotExist());
+
+        verify(productService, never()).findPage(any(), anyInt());
+    }
+
+    @Test
+    void givenFields_whenSearch_thenOnlySelectedFieldsReturned() throws Exception {
+
+        //prepare
+        when(productService.searchFields("second", List.of("name")))
+                .thenReturn(List.of(Map.of("id", 2, "name", "secondProduct")));
+
+        //then
+        mockMvc.perform(get("/products/search/second")
+                        .param("fields", "name"))
+
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[0].name").value("secondProduct"))
+                .andExpect(jsonPath("$[0].price").doesNotExist());
+
+        verify(productService, never()).search(anyString());
+    }
+
     @Test
     void whenAdd_thenResponseWithOkStatusSent() throws Exception {
 
@@ -235,7 +493,7 @@ class ProductControllerTest {
 
         //prepare
         when(productService.findById(5)).thenThrow(
-                new IllegalStateException("product with id=" + 5 + " not found"));
+                new ProductNotFoundException("product with id=" + 5 + " not found"));
 
         //then
         mockMvc.perform(get("/product/5")
@@ -270,7 +528,7 @@ class ProductControllerTest {
 
         //prepare
         when(productService.findById(5)).thenThrow(
-                new IllegalStateException("product with id=" + 5 + " not found"));
+                new ProductNotFoundException("product with id=" + 5 + " not found"));
 
         //then
         mockMvc.perform(get("/product/5")
@@ -311,7 +569,7 @@ class ProductControllerTest {
     void givenNonExistingId_whenUpdate_thenResponseWithNotFoundStatusSent() throws Exception {
 
         //prepare
-        doThrow(new IllegalStateException("product with id=5 not found")).when(productService).update(eq(5), any(Product.class));
+        doThrow(new ProductNotFoundException("product with id=5 not found")).when(productService).update(eq(5), any(Product.class));
 
         //then
         mockMvc.perform(put("/product/5")
@@ -330,4 +588,403 @@ class ProductControllerTest {
 
         verify(productService).update(eq(5), any(Product.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenAddAll_thenResultPerItemReturned() throws Exception {
+
+        //prepare
+        when(productService.addAll(anyList())).thenReturn(List.of(
+                new BatchResult(0, 1, HttpStatus.OK, null),
+                new BatchResult(1, 2, HttpStatus.OK, null)));
+
+        //then
+        mockMvc.perform(post("/products/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [
+                                	{"name":"firstProduct","price":"100"},
+                                	{"name":"secondProduct","price":"200"}
+                                ]"""))
+
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].index").value(0))
+                .andExpect(jsonPath("$.[0].id").value(1))
+                .andExpect(jsonPath("$.[0].status").value("OK"))
+                .andExpect(jsonPath("$.[1].index").value(1))
+                .andExpect(jsonPath("$.[1].id").value(2));
+
+        verify(productService).addAll(argThat(products -> products.size() == 2));
+    }
+
+    @Test
+    void givenNonExistingId_whenUpdateAll_thenNotFoundReportedForThisItem() throws Exception {
+
+        //prepare
+        when(productService.updateAll(anyList())).thenReturn(List.of(
+                new BatchResult(0, 5, HttpStatus.NOT_FOUND, "product with id=5 not found")));
+
+        //then
+        mockMvc.perform(put("/products/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"id":5,"name":"product","price":"200"}]"""))
+
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].status").value("NOT_FOUND"))
+                .andExpect(jsonPath("$.[0].message").value("product with id=5 not found"));
+
+        verify(productService).updateAll(anyList());
+    }
+
+    @Test
+    void whenDeleteAllById_thenResultPerIdReturned() throws Exception {
+
+        //prepare
+        when(productService.deleteAllById(List.of(1, 2))).thenReturn(List.of(
+                new BatchResult(0, 1, HttpStatus.OK, null),
+                new BatchResult(1, 2, HttpStatus.OK, null)));
+
+        //then
+        mockMvc.perform(MockMvcRequestBuilders.delete("/products/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 2]"))
+
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+
+        verify(productService).deleteAllById(List.of(1, 2));
+    }
+
+    @Test
+    void givenVersionedProduct_whenFindById_thenStrongETagAndLastModifiedSent() throws Exception {
+
+        //prepare
+        Product product = Product.builder()
+                .id(3)
+                .name("thirdProduct")
+                .version(4L)
+                .lastModified(LocalDateTime.of(2020, 1, 1, 0, 0))
+                .build();
+        when(productService.findById(3)).thenReturn(product);
+
+        //then
+        mockMvc.perform(get("/product/3"))
+
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(jsonPath("$.version").value(4));
+    }
+
+    @Test
+    void givenMatchingIfNoneMatch_whenFindById_thenNotModifiedWithoutBodySent() throws Exception {
+
+        //prepare
+        when(productService.findById(3)).thenReturn(Product.builder().id(3).version(4L).build());
+
+        //then
+        mockMvc.perform(get("/product/3")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"4\""))
+
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void givenUnchangedProduct_whenFindByIdIfModifiedSince_thenNotModifiedSent() throws Exception {
+
+        //prepare
+        when(productService.findById(3)).thenReturn(Product.builder()
+                .id(3)
+                .lastModified(LocalDateTime.of(2020, 1, 1, 0, 0))
+                .build());
+
+        //then
+        mockMvc.perform(get("/product/3")
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, "Fri, 01 Jan 2100 00:00:00 GMT"))
+
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void whenFindAll_thenWeakETagOfVersionReadWithProductsSent() throws Exception {
+
+        //prepare
+        when(productService.findAll()).thenAnswer(invocation -> {
+            // read in the transaction of the products
+            CatalogVersion.record(5);
+            return expectedProducts;
+        });
+
+        //then
+        mockMvc.perform(get("/products"))
+
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"5\""));
+        verify(productService, never()).findCatalogVersion();
+    }
+
+    @Test
+    void givenViewWithoutVersion_whenFindAll_thenNoCatalogETagSent() throws Exception {
+
+        //prepare
+        when(productService.findAll()).thenReturn(expectedProducts);
+
+        //then
+        mockMvc.perform(get("/products"))
+
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void givenUnchangedCatalog_whenFindAllAndSearch_thenNotModifiedSentWithoutLoadingProducts() throws Exception {
+
+        mockMvc.perform(get("/products")
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"7\""))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/products/search/product")
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"7\""))
+                .andExpect(status().isNotModified());
+
+        verify(productService, never()).findAll();
+        verify(productService, never()).search(anyString());
+    }
+
+    @Test
+    void givenPendingWrites_whenFindAll_thenNoCatalogETagAndProductsSent() throws Exception {
+
+        //prepare
+        when(productService.findCatalogVersion()).thenReturn(null);
+        when(productService.findAll()).thenReturn(expectedProducts);
+
+        //then
+        mockMvc.perform(get("/products")
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"7\""))
+
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.[0].id").value(1));
+    }
+
+    @Test
+    void givenIfMatch_whenUpdate_thenExpectedVersionPassedToService() throws Exception {
+
+        mockMvc.perform(put("/product/1")
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name":"product","price":"200"}"""))
+
+                .andExpect(status().isOk());
+
+        verify(productService).update(eq(1), argThat(product -> product.getVersion() == 2L));
+    }
+
+    @Test
+    void givenStaleIfMatch_whenUpdate_thenResponseWithPreconditionFailedStatusSent() throws Exception {
+
+        //prepare
+        doThrow(new OptimisticLockingFailureException("product with id=1 has version=3, expected version=2"))
+                .when(productService).update(eq(1), any(Product.class));
+
+        //then
+        mockMvc.perform(put("/product/1")
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name":"product","price":"200"}"""))
+
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.status").value("PRECONDITION_FAILED"))
+                .andExpect(jsonPath("$.message").value("product with id=1 has version=3, expected version=2"));
+    }
+
+    @Test
+    void givenWeakIfMatch_whenUpdate_thenResponseWithPreconditionFailedStatusSent() throws Exception {
+
+        mockMvc.perform(put("/product/1")
+                        .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name":"product","price":"200"}"""))
+
+                .andExpect(status().isPreconditionFailed());
+
+        verify(productService, never()).update(anyInt(), any(Product.class));
+    }
+
+    @Test
+    void givenExhaustedConnectionPool_whenFindById_thenResponseWithServiceUnavailableStatusSent() throws Exception {
+
+        //prepare
+        when(productService.findById(1)).thenThrow(
+                new CannotCreateTransactionException("Could not open JPA EntityManager for transaction"));
+
+        //then
+        mockMvc.perform(get("/product/1"))
+
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("SERVICE_UNAVAILABLE"))
+                .andExpect(jsonPath("$.message").value("database connection unavailable"));
+    }
+
+    @Test
+    void givenSearchNotAnsweredInTime_whenSearch_thenResponseWithServiceUnavailableStatusSent() throws Exception {
+
+        //prepare
+        when(productService.search("first")).thenThrow(
+                new QueryTimeoutException("no result for search within PT5S"));
+
+        //then
+        mockMvc.perform(get("/products/search/first"))
+
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("SERVICE_UNAVAILABLE"))
+                .andExpect(jsonPath("$.message").value("no result for search within PT5S"));
+    }
+
+    @Test
+    void givenWriteBehind_whenAdd_thenResponseWithAcceptedStatusAndWriteLocationSent() throws Exception {
+
+        //prepare
+        when(productService.isWriteBehind()).thenReturn(true);
+        when(productService.submitAdd(any())).thenReturn(
+                new WriteReceipt("7", WriteReceipt.Status.PENDING, null, null));
+
+        //then
+        mockMvc.perform(post("/products")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name":"product","price":"200"}"""))
+
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/products/writes/7"))
+                .andExpect(jsonPath("$.trackingId").value("7"))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+
+        verify(productService, never()).add(any());
+    }
+
+    @Test
+    void givenWriteBehind_whenUpdate_thenExpectedVersionSubmittedAndAcceptedStatusSent() throws Exception {
+
+        //prepare
+        when(productService.isWriteBehind()).thenReturn(true);
+        when(productService.submitUpdate(eq(1), any())).thenReturn(
+                new WriteReceipt("8", WriteReceipt.Status.PENDING, 1, null));
+
+        //then
+        mockMvc.perform(put("/product/1")
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name":"product","price":"200"}"""))
+
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/products/writes/8"))
+                .andExpect(jsonPath("$.id").value(1));
+
+        verify(productService).submitUpdate(eq(1), argThat(product -> product.getVersion() == 2L));
+        verify(productService, never()).update(anyInt(), any());
+    }
+
+    @Test
+    void givenFlushedWrite_whenFindWrite_thenResponseWithReceiptSent() throws Exception {
+
+        //prepare
+        when(productService.findWrite("7")).thenReturn(
+                new WriteReceipt("7", WriteReceipt.Status.FLUSHED, 4, null));
+
+        //then
+        mockMvc.perform(get("/products/writes/7"))
+
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FLUSHED"))
+                .andExpect(jsonPath("$.id").value(4));
+    }
+
+    @Test
+    void givenWriteBehindDisabled_whenFindWrite_thenResponseWithConflictStatusSent() throws Exception {
+
+        //prepare
+        when(productService.findWrite("7")).thenThrow(new ProductConflictException("write-behind is disabled"));
+
+        //then
+        mockMvc.perform(get("/products/writes/7"))
+
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.status").value("CONFLICT"))
+                .andExpect(jsonPath("$.message").value("write-behind is disabled"));
+    }
+
+    @Test
+    void givenUnexpectedIllegalState_whenFindById_thenResponseWithInternalServerErrorStatusSent() throws Exception {
+
+        //prepare
+        when(productService.findById(1)).thenThrow(new IllegalStateException("the snapshot was already built"));
+
+        //then
+        mockMvc.perform(get("/product/1"))
+
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.status").value("INTERNAL_SERVER_ERROR"));
+    }
+
+    @Test
+    void givenFullJournal_whenAdd_thenResponseWithServiceUnavailableStatusSent() throws Exception {
+
+        //prepare
+        when(productService.isWriteBehind()).thenReturn(true);
+        when(productService.submitAdd(any())).thenThrow(
+                new RejectedExecutionException("write-behind journal is full, 10000 writes pending"));
+
+        //then
+        mockMvc.perform(post("/products")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name":"product","price":"200"}"""))
+
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.message").value("write-behind journal is full, 10000 writes pending"));
+    }
+
+    @Test
+    void givenSince_whenFindChanges_thenChangesAfterItSent() throws Exception {
+
+        //prepare
+        ProductChange change = new ProductChange(6, 1, ProductChange.Type.UPDATED,
+                LocalDateTime.of(2024, 1, 1, 0, 0), expectedProducts.get(0));
+        when(productService.awaitChanges(5, 100, Duration.ofSeconds(20))).thenReturn(
+                CompletableFuture.completedFuture(new ProductChanges(List.of(change), 6)));
+
+        //when
+        var result = mockMvc.perform(get("/products/changes?since=5&wait=20"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.last").value(6))
+                .andExpect(jsonPath("$.changes[0].sequence").value(6))
+                .andExpect(jsonPath("$.changes[0].type").value("UPDATED"))
+                .andExpect(jsonPath("$.changes[0].product.name").value("firstProduct"));
+    }
+
+    @Test
+    void givenPurgedSince_whenFindChanges_thenResponseWithBadRequestStatusSent() throws Exception {
+
+        //prepare
+        when(productService.awaitChanges(0, 100, Duration.ZERO)).thenThrow(
+                new IllegalArgumentException("changes after sequence 0 are no longer kept, sync from GET /products"));
+
+        //then
+        mockMvc.perform(get("/products/changes?since=0"))
+
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(
+                        "changes after sequence 0 are no longer kept, sync from GET /products"));
+    }
+}
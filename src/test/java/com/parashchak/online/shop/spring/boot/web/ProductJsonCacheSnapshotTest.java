@@ -0,0 +1,89 @@
+package com.parashchak.online.shop.spring.boot.web;
+
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.service.ProductService;
+import com.parashchak.online.shop.spring.boot.service.ProductSnapshotService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@DBRider
+@AutoConfigureMockMvc
+@SpringBootTest(properties = "online-shop.snapshot.enabled=true")
+class ProductJsonCacheSnapshotTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSnapshotService productSnapshotService;
+
+    @Autowired
+    private ProductJsonCache productJsonCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        // changes are numbered from 1 again, the feed waits for a missing number after the purged ones
+        jdbcTemplate.execute("alter sequence product_changes_seq restart with 1");
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenSnapshot_whenJsonOfSameProductTwice_thenSerializedOnce() {
+
+        //prepare
+        productSnapshotService.rebuild();
+        Product first = productService.findById(2);
+        Product second = productService.findById(2);
+
+        //when
+        byte[] firstJson = productJsonCache.json(first);
+        byte[] secondJson = productJsonCache.json(second);
+
+        //then
+        // the snapshot materializes a new instance on every read
+        assertNotSame(first, second);
+        assertSame(firstJson, secondJson);
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes.yml"})
+    void givenSnapshot_whenProductUpdated_thenJsonOfUpdateWritten() throws Exception {
+
+        //prepare
+        productSnapshotService.rebuild();
+        mockMvc.perform(get("/product/1"))
+                .andExpect(jsonPath("$.name").value("firstProduct"));
+
+        //when
+        mockMvc.perform(put("/product/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name":"updatedProduct","price":"150"}"""))
+                .andExpect(status().isOk());
+
+        //then
+        mockMvc.perform(get("/product/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.name").value("updatedProduct"));
+    }
+}
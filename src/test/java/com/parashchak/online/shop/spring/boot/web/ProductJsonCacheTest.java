@@ -0,0 +1,126 @@
+package com.parashchak.online.shop.spring.boot.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@DBRider
+@AutoConfigureMockMvc
+@SpringBootTest
+class ProductJsonCacheTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductJsonCache productJsonCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void givenSameProductInstance_whenJson_thenSerializedOnce() throws Exception {
+
+        //prepare
+        Product product = Product.builder()
+                .id(-1)
+                .name("product")
+                .price(100)
+                .creationDate(LocalDateTime.of(2000, 1, 1, 0, 0))
+                .build();
+
+        //when
+        byte[] first = productJsonCache.json(product);
+        byte[] second = productJsonCache.json(product);
+
+        //then
+        assertSame(first, second);
+        assertArrayEquals(objectMapper.writeValueAsBytes(product), first);
+    }
+
+    @Test
+    void givenChangedProductInstance_whenJson_thenSerializedAgain() {
+
+        //prepare
+        Product product = Product.builder().id(-2).name("product").build();
+        byte[] before = productJsonCache.json(product);
+
+        //when
+        byte[] after = productJsonCache.json(Product.builder().id(-2).name("changedProduct").build());
+
+        //then
+        assertNotSame(before, after);
+        assertTrue(new String(after).contains("changedProduct"));
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenUpdatedProduct_whenFindById_thenJsonOfUpdateWritten() throws Exception {
+
+        //prepare
+        mockMvc.perform(get("/product/1"))
+                .andExpect(jsonPath("$.name").value("firstProduct"));
+
+        //when
+        mockMvc.perform(put("/product/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name":"updatedProduct","price":"150"}"""))
+                .andExpect(status().isOk());
+
+        //then
+        mockMvc.perform(get("/product/1"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.name").value("updatedProduct"));
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenDeletedProduct_whenFindById_thenNotFoundSent() throws Exception {
+
+        //prepare
+        mockMvc.perform(get("/product/2")).andExpect(status().isOk());
+
+        //when
+        mockMvc.perform(delete("/product/2"))
+                .andExpect(status().isOk());
+
+        //then
+        mockMvc.perform(get("/product/2")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenSmileAccepted_whenFindById_thenProductWrittenAsSmile() throws Exception {
+
+        //when
+        byte[] body = mockMvc.perform(get("/product/3")
+                        .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        //then
+        JsonNode product = new ObjectMapper(new SmileFactory()).readTree(body);
+        assertEquals("thirdProduct", product.get("name").asText());
+    }
+}
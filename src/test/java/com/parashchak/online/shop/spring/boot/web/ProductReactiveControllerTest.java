@@ -0,0 +1,153 @@
+package com.parashchak.online.shop.spring.boot.web;
+
+import com.parashchak.online.shop.spring.boot.entity.Product;
+import com.parashchak.online.shop.spring.boot.exception.ProductNotFoundException;
+import com.parashchak.online.shop.spring.boot.service.ProductReactiveService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ProductReactiveController.class)
+@Import(SimpleMeterRegistry.class)
+class ProductReactiveControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ProductReactiveService productReactiveService;
+
+    private List<Product> expectedProducts;
+
+    @BeforeEach
+    void setup() {
+
+        Product firstProduct = Product.builder()
+                .id(1)
+                .name("firstProduct")
+                .price(100)
+                .creationDate(LocalDateTime.of(2000, 1, 1, 0, 0))
+                .description("firstProductDescription")
+                .build();
+
+        Product secondProduct = Product.builder()
+                .id(2)
+                .name("secondProduct")
+                .price(200)
+                .creationDate(LocalDateTime.of(2000, 1, 2, 0, 0))
+                .description("secondProductDescription")
+                .build();
+
+        expectedProducts = List.of(firstProduct, secondProduct);
+    }
+
+    @Test
+    void givenListOfProducts_whenFindAllAsJson_thenJsonArrayReturned() throws Exception {
+
+        //prepare
+        when(productReactiveService.findAll()).thenReturn(Flux.fromIterable(expectedProducts));
+
+        //when
+        MvcResult result = mockMvc.perform(get("/reactive/products").accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.[0].id").value(1))
+                .andExpect(jsonPath("$.[1].id").value(2))
+                .andExpect(jsonPath("$.[1].name").value("secondProduct"));
+    }
+
+    @Test
+    void givenListOfProducts_whenFindAllAsNdjson_thenOneProductPerLineStreamed() throws Exception {
+
+        //prepare
+        when(productReactiveService.findAll()).thenReturn(Flux.fromIterable(expectedProducts));
+
+        //when
+        MvcResult result = mockMvc.perform(get("/reactive/products").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(matchesPattern(
+                        "\\{\"id\":1,.*}\n\\{\"id\":2,.*}\n")));
+    }
+
+    @Test
+    void whenFindById_thenProductReturned() throws Exception {
+
+        //prepare
+        when(productReactiveService.findById(2)).thenReturn(Mono.just(expectedProducts.get(1)));
+
+        //when
+        MvcResult result = mockMvc.perform(get("/reactive/product/2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(2))
+                .andExpect(jsonPath("$.name").value("secondProduct"));
+    }
+
+    @Test
+    void givenNonExistingId_whenFindById_thenResponseWithNotFoundStatusSent() throws Exception {
+
+        //prepare
+        when(productReactiveService.findById(5)).thenReturn(
+                Mono.error(new ProductNotFoundException("product with id=5 not found")));
+
+        //when
+        MvcResult result = mockMvc.perform(get("/reactive/product/5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.status").value("NOT_FOUND"))
+                .andExpect(jsonPath("$.message").value("product with id=5 not found"));
+    }
+
+    @Test
+    void whenSearchByText_thenMatchingProductsReturned() throws Exception {
+
+        //prepare
+        when(productReactiveService.search("second")).thenReturn(Flux.just(expectedProducts.get(1)));
+
+        //when
+        MvcResult result = mockMvc.perform(get("/reactive/products/search/second"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$.[0].id").value(2));
+    }
+}
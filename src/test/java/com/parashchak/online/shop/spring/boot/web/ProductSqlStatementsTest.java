@@ -0,0 +1,126 @@
+package com.parashchak.online.shop.spring.boot.web;
+
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.parashchak.online.shop.spring.boot.config.CacheConfig.PRODUCTS_CACHE;
+import static com.parashchak.online.shop.spring.boot.web.SqlStatementMatchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The statements each endpoint runs against the database, a guard against N+1 queries
+ * and lost caching.
+ */
+@DBRider
+@AutoConfigureMockMvc
+@SpringBootTest
+class ProductSqlStatementsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        cacheManager.getCache(PRODUCTS_CACHE).clear();
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void whenFindById_thenOneSelectIssued() throws Exception {
+        mockMvc.perform(get("/product/1"))
+
+                .andExpect(status().isOk())
+                .andExpect(statements(1))
+                .andExpect(selects(1));
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void givenCachedProduct_whenFindById_thenNoStatementIssued() throws Exception {
+
+        //prepare
+        mockMvc.perform(get("/product/1"));
+
+        //then
+        mockMvc.perform(get("/product/1"))
+
+                .andExpect(status().isOk())
+                .andExpect(statements(0));
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes_committed.yml"})
+    void whenFindAll_thenCatalogVersionAndProductsSelected() throws Exception {
+        mockMvc.perform(get("/products"))
+
+                // the latest changes, then the products
+                .andExpect(status().isOk())
+                .andExpect(selects(2))
+                .andExpect(noRepeatedSelects());
+    }
+
+    @Test
+    @DataSet({"products.yml", "product_changes_committed.yml"})
+    void whenSearch_thenProductsOfAllMatchesSelectedAtOnce() throws Exception {
+        mockMvc.perform(get("/products/search/Product"))
+
+                .andExpect(status().isOk())
+                .andExpect(selects(2))
+                .andExpect(noRepeatedSelects());
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void whenUpdate_thenProductUpdatedAndChangeRecorded() throws Exception {
+        mockMvc.perform(put("/product/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name":"updatedProduct","price":"150","description":"updatedProductDescription"}"""))
+
+                // the product and its change: the next change sequence, insert of the change
+                .andExpect(status().isOk())
+                .andExpect(statements(4))
+                .andExpect(selects(2))
+                .andExpect(updates(1))
+                .andExpect(inserts(1));
+    }
+
+    @Test
+    @DataSet("products.yml")
+    void whenFindById_thenStatementsRecordedPerEndpoint() throws Exception {
+
+        //prepare
+        double before = recordedStatements();
+
+        //when
+        mockMvc.perform(get("/product/2"));
+
+        //then
+        assertEquals(before + 1, recordedStatements());
+    }
+
+    private double recordedStatements() {
+        var summary = meterRegistry.find("product.request.sql.statements")
+                .tags("method", "GET", "uri", "/product/{id}")
+                .summary();
+        return summary == null ? 0 : summary.totalAmount();
+    }
+}
@@ -0,0 +1,58 @@
+package com.parashchak.online.shop.spring.boot.web;
+
+import com.parashchak.online.shop.spring.boot.config.SqlStatistics;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MockMvc expectations on the statements a request ran, read from the statistics
+ * {@link SqlStatisticsInterceptor} leaves on the request.
+ */
+final class SqlStatementMatchers {
+
+    private SqlStatementMatchers() {
+    }
+
+    static ResultMatcher statements(int expected) {
+        return count("statements", expected, SqlStatistics::getStatements);
+    }
+
+    static ResultMatcher selects(int expected) {
+        return count("selects", expected, SqlStatistics::getSelects);
+    }
+
+    static ResultMatcher updates(int expected) {
+        return count("updates", expected, SqlStatistics::getUpdates);
+    }
+
+    static ResultMatcher inserts(int expected) {
+        return count("inserts", expected, SqlStatistics::getInserts);
+    }
+
+    /**
+     * No SELECT was run more than once, so the request has no N+1 query.
+     */
+    static ResultMatcher noRepeatedSelects() {
+        return result -> {
+            SqlStatistics statistics = statistics(result.getRequest().getAttribute(
+                    SqlStatisticsInterceptor.SQL_STATISTICS_ATTRIBUTE));
+            assertTrue(statistics.getRepeatedSelects() <= 1, () -> "run " + statistics.getRepeatedSelects()
+                    + " times: " + statistics.getRepeatedSelect());
+        };
+    }
+
+    private static ResultMatcher count(String name, int expected, ToIntFunction<SqlStatistics> count) {
+        return result -> assertEquals(expected, count.applyAsInt(statistics(result.getRequest().getAttribute(
+                SqlStatisticsInterceptor.SQL_STATISTICS_ATTRIBUTE))), name);
+    }
+
+    private static SqlStatistics statistics(Object attribute) {
+        assertNotNull(attribute, "no SQL statistics on the request");
+        return (SqlStatistics) attribute;
+    }
+}
@@ -0,0 +1,21 @@
+create table if not exists products (
+    id integer primary key,
+    name varchar(255),
+    price float(53),
+    creation_date timestamp(6),
+    description varchar(255),
+    version bigint,
+    last_modified timestamp(6)
+);
+
+create table if not exists product_changes (
+    sequence_number bigint primary key,
+    product_id integer not null,
+    type varchar(16) not null,
+    changed_at timestamp(6) not null
+);
+
+create table if not exists product_changes_purge (
+    id integer primary key,
+    purged_sequence bigint not null
+);